@@ -0,0 +1,174 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import db.DB;
+import db.DbException;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Prepares the database the benchmarks run against. Without -Ddb.config an
+ * in-memory H2 database in MySQL mode is used; pass -Ddb.config=file to run
+ * against a local MySQL instead (its seller table is refilled).
+ */
+public final class BenchmarkDatabase {
+
+	public static final int DEPARTMENTS = 20;
+
+	private static final int INSERT_CHUNK = 5000;
+
+	private BenchmarkDatabase() {
+	}
+
+	// must run in the forked JVM before any class reads db.properties
+	public static synchronized void configure() {
+		if (System.getProperty("db.config") != null) {
+			return;
+		}
+		try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/bench-h2.properties")) {
+			File file = File.createTempFile("bench-h2", ".properties");
+			file.deleteOnExit();
+			Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			System.setProperty("db.config", file.getAbsolutePath());
+		}
+		catch (IOException e) {
+			throw new DbException(e.getMessage());
+		}
+	}
+
+	public static Dataset populate(int sellers) {
+		configure();
+		// the pool runs the application's schema migrations on first use
+		Connection conn = DB.getConnection();
+		try {
+			Dataset data = describe(conn);
+			if (data.sellerCount != sellers || data.departmentIds.length != DEPARTMENTS) {
+				refill(conn, sellers);
+				data = describe(conn);
+			}
+			clearChangeLog(conn);
+			return data;
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+		finally {
+			DB.closeConnection(conn);
+		}
+	}
+
+	// removes the rows the write benchmarks added, keeping the dataset size stable
+	public static void trim(Dataset data) {
+		Connection conn = DB.getConnection();
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("DELETE FROM seller WHERE Id > " + data.maxSellerId);
+			st.executeUpdate("DELETE FROM department WHERE Id > " + data.maxDepartmentId);
+			st.executeUpdate("DELETE FROM change_log");
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+		finally {
+			DB.closeConnection(conn);
+		}
+	}
+
+	public static Seller newSeller(int n, Department dep) {
+		return new Seller(null, "Seller " + n, "seller" + n + "@workshop.com",
+				new java.util.Date(0L), 1000.0 + n % 5000, dep);
+	}
+
+	private static void refill(Connection conn, int sellers) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("DELETE FROM seller");
+			st.executeUpdate("DELETE FROM department");
+		}
+		conn.setAutoCommit(false);
+		try (PreparedStatement st = conn.prepareStatement("INSERT INTO department (Name) VALUES (?)")) {
+			for (int i = 1; i <= DEPARTMENTS; i++) {
+				st.setString(1, "Department " + i);
+				st.addBatch();
+			}
+			st.executeBatch();
+		}
+		int[] departmentIds = describe(conn).departmentIds;
+		try (PreparedStatement st = conn.prepareStatement(
+				"INSERT INTO seller (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES (?, ?, ?, ?, ?)")) {
+			java.sql.Date birthDate = java.sql.Date.valueOf("1990-01-01");
+			for (int i = 1; i <= sellers; i++) {
+				st.setString(1, "Seller " + i);
+				st.setString(2, "seller" + i + "@workshop.com");
+				st.setDate(3, birthDate);
+				st.setDouble(4, 1000.0 + i % 5000);
+				st.setInt(5, departmentIds[i % departmentIds.length]);
+				st.addBatch();
+				if (i % INSERT_CHUNK == 0) {
+					st.executeBatch();
+					conn.commit();
+				}
+			}
+			st.executeBatch();
+			conn.commit();
+		}
+		finally {
+			conn.setAutoCommit(true);
+		}
+	}
+
+	private static void clearChangeLog(Connection conn) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate("DELETE FROM change_log");
+		}
+	}
+
+	private static Dataset describe(Connection conn) throws SQLException {
+		Dataset data = new Dataset();
+		try (Statement st = conn.createStatement()) {
+			try (ResultSet rs = st.executeQuery("SELECT COUNT(*), COALESCE(MIN(Id), 0), COALESCE(MAX(Id), 0) FROM seller")) {
+				rs.next();
+				data.sellerCount = rs.getInt(1);
+				data.minSellerId = rs.getInt(2);
+				data.maxSellerId = rs.getInt(3);
+			}
+			try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM department")) {
+				rs.next();
+				data.departmentIds = new int[rs.getInt(1)];
+			}
+			try (ResultSet rs = st.executeQuery("SELECT Id FROM department ORDER BY Id")) {
+				for (int i = 0; rs.next(); i++) {
+					data.departmentIds[i] = rs.getInt(1);
+					data.maxDepartmentId = rs.getInt(1);
+				}
+			}
+		}
+		return data;
+	}
+
+	public static class Dataset {
+
+		int sellerCount;
+		int minSellerId;
+		int maxSellerId;
+		int maxDepartmentId;
+		int[] departmentIds;
+
+		// ids are contiguous after a refill
+		public int sellerId(int n) {
+			return minSellerId + Math.floorMod(n, maxSellerId - minSellerId + 1);
+		}
+
+		public Department department(int n) {
+			return new Department(departmentIds[Math.floorMod(n, departmentIds.length)], null);
+		}
+	}
+}
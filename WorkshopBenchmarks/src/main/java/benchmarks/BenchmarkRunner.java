@@ -0,0 +1,36 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Same command line as the JMH launcher, but by default results go to
+ * jmh-result.json and the GC profiler reports the allocation rate.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		if (!cmd.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmd.getResult().hasValue()) {
+			options.result("jmh-result.json");
+		}
+		if (cmd.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmarks.BenchmarkDatabase.Dataset;
+import db.DB;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class DepartmentDaoBenchmark {
+
+	// the seller table size matters for the foreign key check on delete
+	@Param({ "1000", "100000", "1000000" })
+	public int sellers;
+
+	private DepartmentDao dao;
+	private Dataset data;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = BenchmarkDatabase.populate(sellers);
+		dao = DaoFactory.createDepartmentDao();
+	}
+
+	@TearDown(Level.Iteration)
+	public void trim() {
+		BenchmarkDatabase.trim(data);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		DB.closeConnection();
+	}
+
+	@Benchmark
+	public List<Department> findAll() {
+		return dao.findAll();
+	}
+
+	@Benchmark
+	public Department findById() {
+		return dao.findById(data.department(ThreadLocalRandom.current().nextInt()).getId());
+	}
+
+	@Benchmark
+	public Department insert() {
+		Department obj = new Department(null, "Department " + ThreadLocalRandom.current().nextInt());
+		dao.insert(obj);
+		return obj;
+	}
+
+	@Benchmark
+	public Department update() {
+		Department obj = data.department(ThreadLocalRandom.current().nextInt());
+		obj.setName("Department " + obj.getId());
+		// the name rarely changes, so without this most calls would skip the UPDATE
+		obj.markDirty();
+		dao.update(obj);
+		return obj;
+	}
+
+	@Benchmark
+	public void deleteById(DeleteTarget target) {
+		dao.deleteById(target.id);
+	}
+
+	@State(Scope.Thread)
+	public static class DeleteTarget {
+
+		private DepartmentDao dao;
+		int id;
+
+		@Setup(Level.Trial)
+		public void setUp(DepartmentDaoBenchmark benchmark) {
+			dao = DaoFactory.createDepartmentDao();
+		}
+
+		@Setup(Level.Invocation)
+		public void insertRow() {
+			Department obj = new Department(null, "Department " + ThreadLocalRandom.current().nextInt());
+			dao.insert(obj);
+			id = obj.getId();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import db.DB;
+import db.RowMapper;
+import model.dao.impl.DepartmentCache;
+import model.dao.impl.Mappers;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Per-row cost of turning a seller row into objects: by column label, as the
+ * DAOs used to, against the compiled index-based mapper. The rows are read
+ * from a scrollable result that is rewound for every pass, so the query itself
+ * is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+	private static final int ROWS = 1000;
+
+	private Connection conn;
+	private PreparedStatement st;
+	private ResultSet rs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		BenchmarkDatabase.populate(ROWS);
+		conn = DB.getConnection();
+		st = conn.prepareStatement(
+				"SELECT seller.*,department.Name as DepName "
+				+ "FROM seller INNER JOIN department "
+				+ "ON seller.DepartmentId = department.Id "
+				+ "ORDER BY Name",
+				ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+		rs = st.executeQuery();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		DB.closeResultSet(rs);
+		DB.closeStatement(st);
+		DB.closeConnection(conn);
+		DB.closeConnection();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void byLabel(Blackhole bh) throws SQLException {
+		rs.beforeFirst();
+		while (rs.next()) {
+			Department dep = DepartmentCache.getInstance().canonical(rs.getInt("DepartmentId"), rs.getString("DepName"));
+			Seller obj = new Seller();
+			obj.setId(rs.getInt("Id"));
+			obj.setName(rs.getString("Name"));
+			obj.setEmail(rs.getString("Email"));
+			obj.setBaseSalary(rs.getDouble("BaseSalary"));
+			obj.setBirthDate(new java.util.Date(rs.getTimestamp("BirthDate").getTime()));
+			obj.setDepartment(dep);
+			bh.consume(obj);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void compiled(Blackhole bh) throws SQLException {
+		rs.beforeFirst();
+		RowMapper<Seller> mapper = Mappers.SELLER.forResultSet(rs);
+		while (rs.next()) {
+			bh.consume(mapper.mapRow(rs));
+		}
+	}
+}
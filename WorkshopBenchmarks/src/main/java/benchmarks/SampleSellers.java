@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Sellers with Portuguese names (accents included) for the benchmarks that do
+ * not need a database. The sequence is fixed by the seed.
+ */
+final class SampleSellers {
+
+	private static final String[] FIRST_NAMES = { "Joo", "Jos", "Antnio", "Conceio",
+			"Luza", "Mrcia", "ngela", "Sebastio", "Ceclia", "Ins", "Ana", "Pedro",
+			"Maria", "Francisco", "Paulo", "Letcia", "Fbio", "Vitria", "Caio", "Beatriz" };
+
+	private static final String[] LAST_NAMES = { "Silva", "Souza", "Conceio", "Gonalves",
+			"Arajo", "Magalhes", "Brando", "Ribeiro", "Pereira", "Loureno", "Fernndez",
+			"Oliveira", "Cardoso", "Assuno", "Rocha", "Falco", "Mendes", "Simes" };
+
+	private static final String[] DOMAINS = { "gmail.com", "hotmail.com", "workshop.com.br", "uol.com.br" };
+
+	private SampleSellers() {
+	}
+
+	static List<Seller> generate(int count, long seed) {
+		Random random = new Random(seed);
+		Department[] departments = new Department[BenchmarkDatabase.DEPARTMENTS];
+		for (int i = 0; i < departments.length; i++) {
+			departments[i] = new Department(i + 1, "Department " + (i + 1));
+		}
+		List<Seller> list = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			list.add(newSeller(i, random, departments[i % departments.length]));
+		}
+		return list;
+	}
+
+	static Seller newSeller(int id, Random random, Department dep) {
+		String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+		String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+		String name = first + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + last;
+		String email = ascii(first + "." + last).toLowerCase() + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+		return new Seller(id, name, email, new java.util.Date(0L), 1000.0 + random.nextInt(5000), dep);
+	}
+
+	private static String ascii(String value) {
+		return java.text.Normalizer.normalize(value, java.text.Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+	}
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.entities.Seller;
+import model.services.SellerSearchIndex;
+
+/**
+ * Filter-as-you-type lookups on the in-memory seller index: a short word
+ * prefix (trie), a longer substring (trigrams), an accent-free two-term query
+ * and a miss, plus the cost of an incremental update. No database involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class SearchIndexBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int sellers;
+
+	private SellerSearchIndex index;
+	private List<Seller> list;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		list = SampleSellers.generate(sellers, 42L);
+		index = new SellerSearchIndex();
+		for (Seller obj : list) {
+			index.put(obj);
+		}
+		random = new Random(7L);
+	}
+
+	@Benchmark
+	public BitSet shortPrefix() {
+		return index.search("ma");
+	}
+
+	@Benchmark
+	public BitSet substring() {
+		return index.search("lhaes");
+	}
+
+	@Benchmark
+	public BitSet twoTermsWithoutAccents() {
+		return index.search("joao conceicao");
+	}
+
+	@Benchmark
+	public BitSet miss() {
+		return index.search("xyzw");
+	}
+
+	// renomeia um vendedor: sai das listas antigas e entra nas novas
+	@Benchmark
+	public Seller update() {
+		Seller old = list.get(random.nextInt(list.size()));
+		Seller obj = SampleSellers.newSeller(old.getId(), random, old.getDepartment());
+		index.put(obj);
+		return obj;
+	}
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import model.entities.Seller;
+import model.services.SellerSearchIndex;
+
+/**
+ * Measures the heap retained by SellerSearchIndex with JOL and compares it to
+ * the index's own estimate. The Seller objects are subtracted, so both numbers
+ * are the index overhead per seller.
+ *
+ * java -cp target/benchmarks.jar benchmarks.SearchIndexFootprint 1000 100000
+ */
+public class SearchIndexFootprint {
+
+	public static void main(String[] args) {
+		String[] sizes = args.length > 0 ? args : new String[] { "1000", "10000", "100000" };
+		System.out.printf("%10s %16s %16s %12s%n", "sellers", "measured B/seller", "estimate B/seller", "total MB");
+		for (String size : sizes) {
+			int count = Integer.parseInt(size);
+			List<Seller> list = SampleSellers.generate(count, 42L);
+			SellerSearchIndex index = new SellerSearchIndex();
+			for (Seller obj : list) {
+				index.put(obj);
+			}
+			long measured = GraphLayout.parseInstance(index).subtract(GraphLayout.parseInstance(list.toArray()))
+					.totalSize();
+			System.out.printf("%10d %16d %16d %12.1f%n", count, measured / count, index.estimateBytesPerSeller(),
+					measured / (1024.0 * 1024.0));
+		}
+	}
+}
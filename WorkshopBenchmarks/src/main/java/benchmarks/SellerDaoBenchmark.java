@@ -0,0 +1,142 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmarks.BenchmarkDatabase.Dataset;
+import db.DB;
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Seller;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class SellerDaoBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int sellers;
+
+	private SellerDao dao;
+	private Dataset data;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = BenchmarkDatabase.populate(sellers);
+		dao = DaoFactory.createSellerDao();
+	}
+
+	@TearDown(Level.Iteration)
+	public void trim() {
+		BenchmarkDatabase.trim(data);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		DB.closeConnection();
+	}
+
+	@Benchmark
+	public List<Seller> findAll() {
+		return dao.findAll();
+	}
+
+	@Benchmark
+	public List<Seller> findByDepartment() {
+		return dao.findByDepartment(data.department(ThreadLocalRandom.current().nextInt()));
+	}
+
+	@Benchmark
+	public Seller findById() {
+		return dao.findById(data.sellerId(ThreadLocalRandom.current().nextInt()));
+	}
+
+	@Benchmark
+	public Seller insert() {
+		int n = ThreadLocalRandom.current().nextInt();
+		Seller obj = BenchmarkDatabase.newSeller(n, data.department(n));
+		dao.insert(obj);
+		return obj;
+	}
+
+	@Benchmark
+	public Seller update() {
+		int id = data.sellerId(ThreadLocalRandom.current().nextInt());
+		Seller obj = BenchmarkDatabase.newSeller(id, data.department(id));
+		obj.setId(id);
+		dao.update(obj);
+		return obj;
+	}
+
+	// only BaseSalary differs from the loaded state, so the UPDATE sets one column
+	@Benchmark
+	public Seller updateOneColumn() {
+		int id = data.sellerId(ThreadLocalRandom.current().nextInt());
+		Seller obj = BenchmarkDatabase.newSeller(id, data.department(id));
+		obj.setId(id);
+		obj.markClean();
+		obj.setBaseSalary(obj.getBaseSalary() + 1);
+		dao.update(obj);
+		return obj;
+	}
+
+	// nothing changed since it was loaded: no statement is sent
+	@Benchmark
+	public Seller updateUnchanged() {
+		int id = data.sellerId(ThreadLocalRandom.current().nextInt());
+		Seller obj = BenchmarkDatabase.newSeller(id, data.department(id));
+		obj.setId(id);
+		obj.markClean();
+		dao.update(obj);
+		return obj;
+	}
+
+	@Benchmark
+	public void deleteById(DeleteTarget target) {
+		dao.deleteById(target.id);
+	}
+
+	/**
+	 * A fresh row for every deleteById call. Per-invocation setup adds some
+	 * timing noise, which is small next to a JDBC round trip.
+	 */
+	@State(Scope.Thread)
+	public static class DeleteTarget {
+
+		private SellerDao dao;
+		private Dataset data;
+		int id;
+
+		@Setup(Level.Trial)
+		public void setUp(SellerDaoBenchmark benchmark) {
+			dao = DaoFactory.createSellerDao();
+			data = benchmark.data;
+		}
+
+		@Setup(Level.Invocation)
+		public void insertRow() {
+			int n = ThreadLocalRandom.current().nextInt();
+			Seller obj = BenchmarkDatabase.newSeller(n, data.department(n));
+			dao.insert(obj);
+			id = obj.getId();
+		}
+	}
+}
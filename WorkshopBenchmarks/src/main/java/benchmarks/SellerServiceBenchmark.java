@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmarks.BenchmarkDatabase.Dataset;
+import db.DB;
+import model.entities.Seller;
+import model.services.SellerService;
+
+/**
+ * The paths the seller screen uses: opening a page of the table and loading a
+ * seller for the edit form (mostly served by the identity map).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class SellerServiceBenchmark {
+
+	private static final int PAGE_SIZE = 100;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int sellers;
+
+	private SellerService service;
+	private Dataset data;
+	private Seller middleCursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = BenchmarkDatabase.populate(sellers);
+		service = new SellerService();
+		middleCursor = service.findById(data.sellerId(sellers / 2));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		DB.closeConnection();
+	}
+
+	@Benchmark
+	public Seller findById() {
+		return service.findById(data.sellerId(ThreadLocalRandom.current().nextInt()));
+	}
+
+	@Benchmark
+	public List<Seller> findFirstPage() {
+		return service.findPage(null, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Seller> findPageInTheMiddle() {
+		return service.findPage(middleCursor, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public int count() {
+		return service.count();
+	}
+}
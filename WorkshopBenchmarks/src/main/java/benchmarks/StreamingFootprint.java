@@ -0,0 +1,121 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import db.DB;
+import db.DbException;
+import model.dao.DaoFactory;
+import model.entities.Seller;
+
+/**
+ * Checks that SellerDao.streamAll keeps memory bounded: the whole seller table
+ * is streamed while the heap retained after a GC is sampled. The first sample
+ * holds what the driver and the database keep for the open cursor; the run
+ * fails when the heap grows past it by more than -Dlimit.mb (8 by default),
+ * i.e. in proportion to the rows already read. Meant to run under a
+ * heap far smaller than the table, so an implementation that buffers the
+ * result set dies with an OutOfMemoryError instead of passing.
+ *
+ * java -Xmx64m -cp target/benchmarks.jar benchmarks.StreamingFootprint 1000000
+ *
+ * Without -Ddb.config the table lives in a file-based H2 database (an
+ * in-memory one would not fit in the small heap). With a MySQL config the
+ * TYPE_FORWARD_ONLY statement and jdbc.streamFetchSize=Integer.MIN_VALUE
+ * path of Connector/J is the one checked.
+ */
+public class StreamingFootprint {
+
+	private static final int SAMPLES = 20;
+
+	public static void main(String[] args) throws IOException {
+		int sellers = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		long limit = Long.getLong("limit.mb", 8L) * 1024 * 1024;
+		if (System.getProperty("db.config") == null) {
+			useFileDatabase();
+		}
+		BenchmarkDatabase.populate(sellers);
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long before = retained(memory);
+		long baseline = -1;
+		long peak = 0;
+		long rows = 0;
+		long sampleEvery = Math.max(1, sellers / SAMPLES);
+		long start = System.nanoTime();
+		try (Stream<Seller> stream = DaoFactory.createSellerDao().streamAll()) {
+			for (Seller obj : (Iterable<Seller>) stream::iterator) {
+				if (obj.getId() == null) {
+					throw new IllegalStateException("Seller without id");
+				}
+				if (++rows % sampleEvery == 0) {
+					long used = retained(memory);
+					if (baseline < 0) {
+						baseline = used;
+					}
+					peak = Math.max(peak, used - baseline);
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		DB.closeConnection();
+
+		System.out.printf("%d sellers streamed in %.1f s (%.0f rows/s), max heap %.1f MB, open cursor %.2f MB, "
+				+ "growth while reading %.2f MB (limit %.0f MB)%n", rows, seconds, rows / seconds,
+				memory.getHeapMemoryUsage().getMax() / (1024.0 * 1024.0), (baseline - before) / (1024.0 * 1024.0),
+				peak / (1024.0 * 1024.0), limit / (1024.0 * 1024.0));
+		if (rows != sellers) {
+			System.out.println("FAILED: expected " + sellers + " rows");
+			System.exit(1);
+		}
+		if (peak > limit) {
+			System.out.println("FAILED: the stream retains memory in proportion to the rows read");
+			System.exit(1);
+		}
+	}
+
+	// heap still in use after a full collection
+	private static long retained(MemoryMXBean memory) {
+		System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	// the benchmark H2 settings with a small page cache and the data on disk
+	private static void useFileDatabase() throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = StreamingFootprint.class.getResourceAsStream("/bench-h2.properties")) {
+			props.load(in);
+		}
+		File dir = Files.createTempDirectory("streaming-footprint").toFile();
+		props.setProperty("dburl", "jdbc:h2:file:" + new File(dir, "workshopdb").getAbsolutePath()
+				+ ";MODE=MySQL;IGNORECASE=TRUE;DATABASE_TO_LOWER=TRUE;CACHE_SIZE=4096");
+		// reading a million rows holds the connection well past the leak threshold
+		props.setProperty("pool.leakThresholdMs", "0");
+		File file = new File(dir, "streaming-h2.properties");
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.ISO_8859_1)) {
+			props.store(out, null);
+		}
+		System.setProperty("db.config", file.getAbsolutePath());
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(dir)));
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if (!file.delete() && file.exists()) {
+			throw new DbException("Could not delete " + file);
+		}
+	}
+}
@@ -1,18 +1,40 @@
 package application;
 	
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import gui.util.Alerts;
+import gui.util.Utils;
+import gui.util.ViewCache;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ScrollPane;
 import javafx.stage.Stage;
+import model.services.EntityCache;
+import model.services.SellerWriteBehind;
 
 
 public class Main extends Application {
 	
+	private static final Logger LOG = Logger.getLogger(Main.class.getName());
+	
 	private static Scene mainScene;
 	
 	@Override
 	public void start(Stage primaryStage) {
+		//Os vendedores do cache so os mesmos objetos das tabelas: s a thread do JavaFX muda o estado deles
+		EntityCache.setStateExecutor(task -> {
+			if(Platform.isFxApplicationThread()) {
+				task.run();
+			}
+			else {
+				Platform.runLater(task);
+			}
+		});
 		try {
 			FXMLLoader loader = new FXMLLoader(getClass().getResource("/gui/FXMLMain.fxml"));
 			ScrollPane scrollPane = loader.load();
@@ -23,12 +45,40 @@ public class Main extends Application {
 			mainScene = new Scene(scrollPane);
 			primaryStage.setScene(mainScene);
 			primaryStage.setTitle("Workshop");
+			primaryStage.setOnShown(event -> Startup.firstFrame());
 			primaryStage.show();
+			
+			//A janela no espera o banco: conexes, comandos e departamentos so preparados em segundo plano
+			Startup.warmUpAsync().whenCompleteAsync((v, ex) -> {
+				if(ex == null) {
+					return;
+				}
+				Alerts.showAlert("Erro !!", "Erro ao preparar o banco de dados", Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+				//Com schema.verify=true no fica aberta se alguma consulta dos DAOs ficar sem ndice
+				if(Startup.isVerificationFailed()) {
+					Platform.exit();
+				}
+			}, Utils.fxExecutor());
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
 	}
 	
+	@Override
+	public void stop() throws InterruptedException {
+		//Grava as edies que ainda esto na fila antes de fechar as conexes
+		if(SellerWriteBehind.isEnabled() && !SellerWriteBehind.getInstance().flush(10000)) {
+			LOG.log(Level.WARNING, "Seller edits not written before exit: " + SellerWriteBehind.getInstance().size());
+		}
+		DB.closeConnection();
+	}
+	
+	//Chamado pelo Startup, j com a janela na tela
+	static void preloadViews() {
+		ViewCache.preloadViews("/gui/FXMLSellerList.fxml", "/gui/FXMLDepartmentList.fxml");
+		ViewCache.preloadDialogs(mainScene.getWindow(), "/gui/FXMLSellerForm.fxml", "/gui/FXMLDepartmentForm.fxml");
+	}
+	
 	public static Scene getMainScene() {
 		return mainScene;
 	}
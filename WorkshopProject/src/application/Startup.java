@@ -0,0 +1,99 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import db.DB;
+import javafx.application.Platform;
+import db.DbException;
+import model.dao.DaoFactory;
+import model.dao.QueryPlanVerifier;
+import model.services.DepartmentService;
+import model.services.ReportService;
+import model.services.SellerService;
+import model.services.ServiceExecutor;
+
+/**
+ * Startup work that used to happen on the JavaFX thread the first time a
+ * menu item was clicked: reading db.properties, opening and validating the
+ * pooled connections, preparing the statements of the first screens and,
+ * with startup.preloadDepartments=true, loading the departments. It runs in
+ * the background while the window is already on screen. With
+ * startup.preloadViews=true the FXML of the lists and forms is parsed into
+ * the {@link gui.util.ViewCache} in the meantime. The time from JVM
+ * start to the first frame and to the first data shown is logged.
+ */
+public class Startup {
+
+	private static final Logger LOG = Logger.getLogger(Startup.class.getName());
+
+	private static final AtomicBoolean firstFrame = new AtomicBoolean();
+	private static final AtomicBoolean firstData = new AtomicBoolean();
+
+	private static CompletableFuture<Void> warmUp;
+
+	private static volatile boolean verificationFailed;
+
+	//A primeira chamada dispara o aquecimento; as outras recebem o mesmo future
+	public static synchronized CompletableFuture<Void> warmUpAsync() {
+		if(warmUp == null) {
+			warmUp = ServiceExecutor.runAsync(Startup::warmUp);
+		}
+		return warmUp;
+	}
+
+	//Com schema.verify=true e uma consulta sem ndice a aplicao no deve seguir aberta
+	public static boolean isVerificationFailed() {
+		return verificationFailed;
+	}
+
+	public static void firstFrame() {
+		if(firstFrame.compareAndSet(false, true)) {
+			LOG.info("Time to first frame: " + sinceLaunch() + " ms");
+		}
+	}
+
+	//Chamado pelas telas quando os dados aparecem; s a primeira vez conta
+	public static void firstData(String view) {
+		if(firstData.compareAndSet(false, true)) {
+			LOG.info("Time to first data (" + view + "): " + sinceLaunch() + " ms");
+		}
+	}
+
+	private static void warmUp() {
+		long start = System.nanoTime();
+		Properties props = DB.getProperties();
+		//As telas no dependem do banco: so lidas na thread do JavaFX enquanto o banco  preparado aqui
+		if(Boolean.parseBoolean(props.getProperty("startup.preloadViews", "true"))) {
+			Platform.runLater(Main::preloadViews);
+		}
+		if(Boolean.parseBoolean(props.getProperty("startup.warmUp", "true"))) {
+			DaoFactory.warmUp();
+			//Os servios j nascem com o pool aberto: o primeiro clique no menu no espera o banco
+			SellerService.getInstance();
+			DepartmentService departments = DepartmentService.getInstance();
+			ReportService.getInstance();
+			if(Boolean.parseBoolean(props.getProperty("startup.preloadDepartments", "true"))) {
+				departments.findAll();
+			}
+			LOG.info("Warm-up done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		}
+		if(Boolean.parseBoolean(props.getProperty("schema.verify", "false"))) {
+			try {
+				QueryPlanVerifier.verify();
+			}
+			catch(DbException e) {
+				verificationFailed = true;
+				throw e;
+			}
+		}
+	}
+
+	private static long sinceLaunch() {
+		return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+}
@@ -0,0 +1,58 @@
+package db;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column label to index lookup for one result shape. Labels are matched
+ * case-insensitively and the first column with a label wins, like
+ * ResultSet.findColumn.
+ */
+public class ColumnMap {
+
+	private final Map<String, Integer> indexes;
+	private final String shape;
+
+	private ColumnMap(Map<String, Integer> indexes, String shape) {
+		this.indexes = indexes;
+		this.shape = shape;
+	}
+
+	public static ColumnMap of(ResultSetMetaData md) throws SQLException {
+		Map<String, Integer> indexes = new HashMap<>();
+		int count = md.getColumnCount();
+		for (int i = 1; i <= count; i++) {
+			indexes.putIfAbsent(md.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+		}
+		return new ColumnMap(indexes, shapeOf(md));
+	}
+
+	//Rtulos em ordem; dois result sets com o mesmo formato so mapeados do mesmo jeito
+	public static String shapeOf(ResultSetMetaData md) throws SQLException {
+		int count = md.getColumnCount();
+		StringBuilder sb = new StringBuilder(count * 12);
+		for (int i = 1; i <= count; i++) {
+			sb.append(md.getColumnLabel(i)).append(',');
+		}
+		return sb.toString();
+	}
+
+	public int index(String label) {
+		Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+		if (index == null) {
+			throw new DbException("Column not found: " + label);
+		}
+		return index;
+	}
+
+	public boolean contains(String label) {
+		return indexes.containsKey(label.toLowerCase(Locale.ROOT));
+	}
+
+	public String getShape() {
+		return shape;
+	}
+}
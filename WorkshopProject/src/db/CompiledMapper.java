@@ -0,0 +1,62 @@
+package db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds a {@link RowMapper} from the column positions of a result shape and
+ * keeps it for every later result with the same columns. The per-row code
+ * only reads by index.
+ */
+public class CompiledMapper<T> {
+
+	private final Compiler<T> compiler;
+	private final ConcurrentHashMap<String, RowMapper<T>> byShape = new ConcurrentHashMap<>();
+
+	public CompiledMapper(Compiler<T> compiler) {
+		this.compiler = compiler;
+	}
+
+	public RowMapper<T> forResultSet(ResultSet rs) throws SQLException {
+		String shape = ColumnMap.shapeOf(rs.getMetaData());
+		RowMapper<T> mapper = byShape.get(shape);
+		if (mapper == null) {
+			mapper = compiler.compile(ColumnMap.of(rs.getMetaData()));
+			RowMapper<T> existing = byShape.putIfAbsent(shape, mapper);
+			if (existing != null) {
+				mapper = existing;
+			}
+		}
+		return mapper;
+	}
+
+	public List<T> mapAll(ResultSet rs) throws SQLException {
+		RowMapper<T> mapper = forResultSet(rs);
+		List<T> list = new ArrayList<>();
+		while (rs.next()) {
+			list.add(mapper.mapRow(rs));
+		}
+		return list;
+	}
+
+	//null quando o resultado vem vazio
+	public T mapFirst(ResultSet rs) throws SQLException {
+		if (!rs.next()) {
+			return null;
+		}
+		return forResultSet(rs).mapRow(rs);
+	}
+
+	public int getShapeCount() {
+		return byShape.size();
+	}
+
+	@FunctionalInterface
+	public interface Compiler<T> {
+
+		RowMapper<T> compile(ColumnMap columns) throws SQLException;
+	}
+}
@@ -0,0 +1,284 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ConnectionPool {
+
+	private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+	private final String url;
+	private final Properties props;
+
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMs;
+	private final long borrowTimeoutMs;
+	private final long leakThresholdMs;
+	private final int validationTimeoutSec;
+	private final long aliveBypassMs;
+	private final int statementCacheSize;
+
+	//Justo: as threads recebem conexes na ordem em que pediram
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger total = new AtomicInteger();
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong leaks = new AtomicLong();
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong statementEvictions = new AtomicLong();
+
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean shutdown;
+
+	public ConnectionPool(String url, Properties props) {
+		this.url = url;
+		this.props = props;
+		this.minSize = intProperty(props, "pool.minSize", 1);
+		this.maxSize = Math.max(1, intProperty(props, "pool.maxSize", 10));
+		this.idleTimeoutMs = longProperty(props, "pool.idleTimeoutMs", 300000L);
+		this.borrowTimeoutMs = longProperty(props, "pool.borrowTimeoutMs", 5000L);
+		this.leakThresholdMs = longProperty(props, "pool.leakThresholdMs", 0L);
+		this.validationTimeoutSec = intProperty(props, "pool.validationTimeoutSec", 2);
+		this.aliveBypassMs = longProperty(props, "pool.aliveBypassMs", 500L);
+		this.statementCacheSize = intProperty(props, "pool.statementCacheSize", 64);
+		this.permits = new Semaphore(maxSize, true);
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "db-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000L, Math.min(idleTimeoutMs, leakThresholdMs > 0 ? leakThresholdMs : idleTimeoutMs) / 2);
+		housekeeper.scheduleWithFixedDelay(this::houseKeeping, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public Connection getConnection() {
+		if (shutdown) {
+			throw new DbException("Connection pool has been shut down");
+		}
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
+				throw new DbException("Timeout after " + borrowTimeoutMs + "ms waiting for a database connection ("
+						+ getStats() + ")");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Interrupted while waiting for a database connection");
+		}
+		recordWait(System.nanoTime() - start);
+
+		try {
+			PooledConnection pc;
+			while ((pc = idle.pollFirst()) != null) {
+				if (isValid(pc)) {
+					break;
+				}
+				destroy(pc);
+			}
+			if (pc == null) {
+				pc = create();
+			}
+			active.add(pc);
+			return pc.borrow(leakThresholdMs > 0);
+		}
+		catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	void release(PooledConnection pc) {
+		if (!active.remove(pc)) {
+			return;
+		}
+		try {
+			Connection raw = pc.getRaw();
+			if (!raw.getAutoCommit()) {
+				raw.rollback();
+				raw.setAutoCommit(true);
+			}
+			pc.returned();
+			if (shutdown) {
+				destroy(pc);
+			}
+			else {
+				//LIFO mantm quentes as conexes usadas por ltimo e deixa as outras expirarem paradas
+				idle.offerFirst(pc);
+			}
+		}
+		catch (SQLException e) {
+			destroy(pc);
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	//Abre minSize conexes agora, e no no primeiro uso, e prepara os comandos dados em cada uma
+	//para as primeiras consultas j os acharem no cache de statements; retorna o nmero de conexes
+	public int warmUp(Collection<String> statements) {
+		List<Connection> borrowed = new ArrayList<>();
+		try {
+			for (int i = 0; i < Math.max(1, minSize); i++) {
+				Connection conn = getConnection();
+				borrowed.add(conn);
+				for (String sql : statements) {
+					//Fechar devolve o statement ao cache da conexo
+					conn.prepareStatement(sql).close();
+				}
+			}
+			return borrowed.size();
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+		finally {
+			for (Connection conn : borrowed) {
+				DB.closeConnection(conn);
+			}
+		}
+	}
+
+	public PoolStats getStats() {
+		long borrows = borrowCount.get();
+		return new PoolStats(active.size(), idle.size(), total.get(), maxSize, permits.getQueueLength(), borrows,
+				borrows == 0 ? 0.0 : totalWaitNanos.get() / 1e6 / borrows, maxWaitNanos.get() / 1e6, timeouts.get(),
+				leaks.get(), statementHits.get(), statementMisses.get(), statementEvictions.get());
+	}
+
+	int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	void recordStatementHit() {
+		statementHits.incrementAndGet();
+	}
+
+	void recordStatementMiss() {
+		statementMisses.incrementAndGet();
+	}
+
+	void recordStatementEviction() {
+		statementEvictions.incrementAndGet();
+	}
+
+	public void shutdown() {
+		shutdown = true;
+		housekeeper.shutdownNow();
+		PooledConnection pc;
+		while ((pc = idle.pollFirst()) != null) {
+			destroy(pc);
+		}
+	}
+
+	private PooledConnection create() {
+		try {
+			PooledConnection pc = new PooledConnection(this, DriverManager.getConnection(url, props));
+			total.incrementAndGet();
+			return pc;
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+	}
+
+	private void destroy(PooledConnection pc) {
+		total.decrementAndGet();
+		pc.closeQuietly();
+	}
+
+	//Uma conexo devolvida h pouco  aceita sem ida ao servidor; s as paradas h mais
+	//de pool.aliveBypassMs passam pelo isValid
+	private boolean isValid(PooledConnection pc) {
+		if (System.currentTimeMillis() - pc.getLastUsedAt() <= aliveBypassMs) {
+			return true;
+		}
+		try {
+			return pc.getRaw().isValid(validationTimeoutSec);
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void recordWait(long nanos) {
+		borrowCount.incrementAndGet();
+		totalWaitNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = maxWaitNanos.get())) {
+			if (maxWaitNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	private void houseKeeping() {
+		try {
+			long now = System.currentTimeMillis();
+
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext() && total.get() > minSize) {
+				PooledConnection pc = it.next();
+				if (now - pc.getLastUsedAt() > idleTimeoutMs && idle.remove(pc)) {
+					destroy(pc);
+				}
+			}
+
+			while (!shutdown && total.get() < minSize) {
+				idle.offerLast(create());
+			}
+
+			if (leakThresholdMs > 0) {
+				for (PooledConnection pc : active) {
+					long borrowedAt = pc.getBorrowedAt();
+					if (borrowedAt > 0 && !pc.isLeakReported() && now - borrowedAt > leakThresholdMs) {
+						pc.setLeakReported(true);
+						leaks.incrementAndGet();
+						LOG.log(Level.WARNING, "Possible connection leak: connection borrowed " + (now - borrowedAt)
+								+ "ms ago has not been returned", pc.getBorrowTrace());
+					}
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Connection pool housekeeping failed", e);
+		}
+	}
+
+	private static int intProperty(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	private static long longProperty(Properties props, String key, long defaultValue) {
+		String value = props.getProperty(key);
+		return value == null ? defaultValue : Long.parseLong(value.trim());
+	}
+}
@@ -3,7 +3,6 @@ package db;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -11,34 +10,129 @@ import java.util.Properties;
 
 public class DB {
 
-	private static Connection conn = null;
+	private static Properties props = null;
+	
+	private static ConnectionPool pool = null;
+	
+	private static JdbcTemplate template = null;
+	
+	private static ConnectionPool readPool = null;
+	
+	private static JdbcTemplate readTemplate = null;
+	
+	public static synchronized ConnectionPool getPool() {
+		if (pool == null) {
+			Properties props = getProperties();
+			String url = props.getProperty("dburl");
+			ConnectionPool created = new ConnectionPool(url, props);
+			//O esquema  atualizado antes de qualquer outro pegar uma conexo
+			if (Boolean.parseBoolean(props.getProperty("schema.migrate", "true"))) {
+				try {
+					new SchemaMigrator(created).migrate();
+				}
+				catch (RuntimeException e) {
+					created.shutdown();
+					throw e;
+				}
+			}
+			pool = created;
+		}
+		return pool;
+	}
+	
+	public static synchronized JdbcTemplate getTemplate() {
+		if (template == null) {
+			template = new JdbcTemplate(getPool());
+			if (Boolean.parseBoolean(getProperties().getProperty("metrics.enabled", "true"))) {
+				template.addInterceptor(QueryMetrics.getInstance());
+			}
+		}
+		return template;
+	}
+	
+	//null, a no ser que dburl.read aponte para uma rplica
+	public static synchronized ConnectionPool getReadPool() {
+		if (readPool == null) {
+			String url = getProperties().getProperty("dburl.read", "").trim();
+			if (url.isEmpty()) {
+				return null;
+			}
+			//A rplica recebe o esquema pela replicao, no pelas migraes
+			readPool = new ConnectionPool(url, getProperties());
+		}
+		return readPool;
+	}
+	
+	//O prprio template principal quando no h rplica
+	public static synchronized JdbcTemplate getReadTemplate() {
+		if (readTemplate == null) {
+			ConnectionPool replica = getReadPool();
+			readTemplate = replica == null ? getTemplate()
+					: getTemplate().forReplica(replica, getIntProperty("read.readYourWritesMs", 5000));
+		}
+		return readTemplate;
+	}
+	
+	public static synchronized Properties getProperties() {
+		if (props == null) {
+			props = loadProperties();
+		}
+		return props;
+	}
+	
+	public static int getIntProperty(String key, int defaultValue) {
+		String value = getProperties().getProperty(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
 	
 	public static Connection getConnection() {
-		if (conn == null) {
+		return getPool().getConnection();
+	}
+	
+	public static synchronized void closeConnection() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+			template = null;
+		}
+		if (readPool != null) {
+			readPool.shutdown();
+			readPool = null;
+		}
+		readTemplate = null;
+	}
+	
+	public static void closeConnection(Connection conn) {
+		if (conn != null) {
 			try {
-				Properties props = loadProperties();
-				String url = props.getProperty("dburl");
-				conn = DriverManager.getConnection(url, props);
-			}
-			catch (SQLException e) {
+				conn.close();
+			} catch (SQLException e) {
 				throw new DbException(e.getMessage());
 			}
 		}
-		return conn;
 	}
 	
-	public static void closeConnection() {
+	public static void rollback(Connection conn) {
 		if (conn != null) {
 			try {
-				conn.close();
+				conn.rollback();
 			} catch (SQLException e) {
 				throw new DbException(e.getMessage());
 			}
 		}
 	}
 	
+	public static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ",?");
+		}
+		return sb.toString();
+	}
+	
+	//-Ddb.config aponta para outro arquivo, por exemplo o banco dos benchmarks
 	private static Properties loadProperties() {
-		try (FileInputStream fs = new FileInputStream("db.properties")) {
+		try (FileInputStream fs = new FileInputStream(System.getProperty("db.config", "db.properties"))) {
 			Properties props = new Properties();
 			props.load(fs);
 			return props;
@@ -3,7 +3,19 @@ package db;
 public class DbException extends RuntimeException {
 	private static final long serialVersionUID = 1L;
 
+	//Da SQLException por trs desta; null quando no houve
+	private final String sqlState;
+
 	public DbException(String msg) {
+		this(msg, null);
+	}
+
+	public DbException(String msg, String sqlState) {
 		super(msg);
+		this.sqlState = sqlState;
+	}
+
+	public String getSQLState() {
+		return sqlState;
 	}
 }
@@ -0,0 +1,502 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import db.StatementInterceptor.Execution;
+import db.StatementInterceptor.Kind;
+
+/**
+ * Runs statements against the pool: borrows a connection, prepares, binds,
+ * executes and closes everything, turning SQLException into DbException.
+ * Inside {@link #inTransaction} every call on the same thread shares one
+ * connection that is committed at the end; {@link #inReadOnlySnapshot} does
+ * the same for reads that must see one consistent state. Every call goes
+ * through the registered {@link StatementInterceptor}s. A template made by
+ * {@link #forReplica} reads from a replica; see there for what still goes
+ * to the primary. Queries run inside {@link QueryCancellation#run} can be
+ * stopped from another thread.
+ */
+public class JdbcTemplate {
+
+	private static final Object[] NO_PARAMETERS = new Object[0];
+
+	private final ConnectionPool pool;
+	private final int chunkSize;
+	private final int streamFetchSize;
+	private final List<StatementInterceptor> interceptors;
+
+	//Conexo da transao aberta nesta thread
+	private final ThreadLocal<Connection> transaction = new ThreadLocal<>();
+
+	//Preenchido no template da rplica, que repassa a ele as escritas e as transaes
+	private final JdbcTemplate primary;
+	private final long readYourWritesMs;
+
+	//ltima escrita gravada por este processo no principal
+	private volatile long lastWriteMillis;
+
+	public JdbcTemplate(ConnectionPool pool) {
+		this(pool, null, 0, new CopyOnWriteArrayList<>());
+	}
+
+	private JdbcTemplate(ConnectionPool pool, JdbcTemplate primary, long readYourWritesMs,
+			List<StatementInterceptor> interceptors) {
+		this.pool = pool;
+		this.primary = primary;
+		this.readYourWritesMs = readYourWritesMs;
+		this.interceptors = interceptors;
+		this.chunkSize = DB.getIntProperty("batch.chunkSize", 500);
+		//Integer.MIN_VALUE faz o Connector/J trazer linha a linha
+		this.streamFetchSize = DB.getIntProperty("jdbc.streamFetchSize", Integer.MIN_VALUE);
+	}
+
+	/**
+	 * A template whose queries run on the replica pool, sharing this one's
+	 * interceptors. Writes, transactions and queries inside a transaction of
+	 * this template still run on the primary. So do all queries for
+	 * readYourWritesMs after this process last wrote, so that a screen
+	 * refreshed after a save does not miss it while the replica catches up.
+	 */
+	public JdbcTemplate forReplica(ConnectionPool replica, long readYourWritesMs) {
+		return new JdbcTemplate(replica, this, readYourWritesMs, interceptors);
+	}
+
+	public void addInterceptor(StatementInterceptor interceptor) {
+		interceptors.add(interceptor);
+	}
+
+	public void removeInterceptor(StatementInterceptor interceptor) {
+		interceptors.remove(interceptor);
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public <T> List<T> query(String sql, CompiledMapper<T> mapper, Object... params) {
+		return execute(Kind.QUERY, sql, params, 1, conn -> {
+			try (PreparedStatement st = prepare(conn, sql, params); ResultSet rs = executeQuery(st)) {
+				return mapper.mapAll(rs);
+			}
+		});
+	}
+
+	public <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) {
+		return execute(Kind.QUERY, sql, params, 1, conn -> {
+			try (PreparedStatement st = prepare(conn, sql, params); ResultSet rs = executeQuery(st)) {
+				List<T> list = new ArrayList<>();
+				while (rs.next()) {
+					list.add(mapper.mapRow(rs));
+				}
+				return list;
+			}
+		});
+	}
+
+	//null quando nenhuma linha atende
+	public <T> T queryForObject(String sql, CompiledMapper<T> mapper, Object... params) {
+		return execute(Kind.QUERY, sql, params, 1, conn -> {
+			try (PreparedStatement st = prepare(conn, sql, params); ResultSet rs = executeQuery(st)) {
+				return mapper.mapFirst(rs);
+			}
+		});
+	}
+
+	public <T> T queryForObject(String sql, RowMapper<T> mapper, Object... params) {
+		return execute(Kind.QUERY, sql, params, 1, conn -> {
+			try (PreparedStatement st = prepare(conn, sql, params); ResultSet rs = executeQuery(st)) {
+				return rs.next() ? mapper.mapRow(rs) : null;
+			}
+		});
+	}
+
+	//O stream retornado segura uma conexo at ser fechado (fora de uma transao)
+	public <T> Stream<T> queryForStream(String sql, CompiledMapper<T> mapper, Object... params) {
+		Connection bound = boundConnection();
+		Connection conn = bound;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		RowMapper<T> rowMapper;
+		//O statement vive mais que a cadeia, ento a chamada o entrega aqui
+		PreparedStatement[] prepared = new PreparedStatement[1];
+		try {
+			if (conn == null) {
+				conn = poolFor(Kind.STREAM).getConnection();
+			}
+			rs = new Chain<ResultSet>(Kind.STREAM, sql, params, 1, c -> {
+				DB.closeStatement(prepared[0]);
+				prepared[0] = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				prepared[0].setFetchSize(streamFetchSize);
+				bind(prepared[0], params);
+				return prepared[0].executeQuery();
+			}, conn).proceed();
+			st = prepared[0];
+			rowMapper = mapper.forResultSet(rs);
+		}
+		catch (SQLException | RuntimeException e) {
+			closeAll(rs, prepared[0], bound == null ? conn : null);
+			throw e instanceof DbException ? (DbException) e : new DbException(e.getMessage());
+		}
+
+		ResultSet cursor = rs;
+		PreparedStatement statement = st;
+		Connection owned = bound == null ? conn : null;
+
+		Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (!cursor.next()) {
+						return false;
+					}
+					action.accept(rowMapper.mapRow(cursor));
+					return true;
+				}
+				catch (SQLException e) {
+					throw new DbException(e.getMessage());
+				}
+			}
+		};
+		return StreamSupport.stream(rows, false).onClose(() -> closeAll(cursor, statement, owned));
+	}
+
+	public int update(String sql, Object... params) {
+		return execute(Kind.UPDATE, sql, params, 1, conn -> {
+			try (PreparedStatement st = prepare(conn, sql, params)) {
+				return st.executeUpdate();
+			}
+		});
+	}
+
+	public int insertReturningKey(String sql, Object... params) {
+		return execute(Kind.UPDATE, sql, params, 1, conn -> {
+			try (PreparedStatement st = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				bind(st, params);
+				if (st.executeUpdate() == 0) {
+					throw new DbException("Unexpected error! No rows affected!");
+				}
+				try (ResultSet rs = st.getGeneratedKeys()) {
+					if (!rs.next()) {
+						throw new DbException("Unexpected error! Missing generated key!");
+					}
+					return rs.getInt(1);
+				}
+			}
+		});
+	}
+
+	//Enviado em partes de batch.chunkSize, tudo numa transao s
+	public <T> int batchUpdate(String sql, List<T> items, StatementSetter<T> setter) {
+		if (items.isEmpty()) {
+			return 0;
+		}
+		return inTransaction(() -> execute(Kind.BATCH, sql, NO_PARAMETERS, items.size(), conn -> {
+			int rows = 0;
+			try (PreparedStatement st = conn.prepareStatement(sql)) {
+				for (int from = 0; from < items.size(); from += chunkSize) {
+					for (T item : items.subList(from, Math.min(from + chunkSize, items.size()))) {
+						setter.setValues(st, item);
+						st.addBatch();
+					}
+					for (int count : st.executeBatch()) {
+						rows += Math.max(count, 0);
+					}
+				}
+			}
+			return rows;
+		}));
+	}
+
+	//Como batchUpdate, entregando a cada item a chave gerada
+	public <T> void batchInsert(String sql, List<T> items, StatementSetter<T> setter, BiConsumer<T, Integer> keys) {
+		if (items.isEmpty()) {
+			return;
+		}
+		inTransaction(() -> execute(Kind.BATCH, sql, NO_PARAMETERS, items.size(), conn -> {
+			try (PreparedStatement st = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				for (int from = 0; from < items.size(); from += chunkSize) {
+					List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+					for (T item : chunk) {
+						setter.setValues(st, item);
+						st.addBatch();
+					}
+					st.executeBatch();
+					try (ResultSet rs = st.getGeneratedKeys()) {
+						for (T item : chunk) {
+							if (!rs.next()) {
+								throw new DbException("Unexpected error! Missing generated key!");
+							}
+							keys.accept(item, rs.getInt(1));
+						}
+					}
+				}
+			}
+			return null;
+		}));
+	}
+
+	//Entra na transao j aberta nesta thread, se houver
+	public <T> T inTransaction(Supplier<T> work) {
+		if (primary != null) {
+			return primary.inTransaction(work);
+		}
+		if (transaction.get() != null) {
+			return work.get();
+		}
+		Connection conn = pool.getConnection();
+		try {
+			conn.setAutoCommit(false);
+			transaction.set(conn);
+			T result = work.get();
+			conn.commit();
+			lastWriteMillis = System.currentTimeMillis();
+			return result;
+		}
+		catch (SQLException | RuntimeException e) {
+			DB.rollback(conn);
+			throw e instanceof RuntimeException ? (RuntimeException) e : translate((SQLException) e);
+		}
+		finally {
+			transaction.remove();
+			DB.closeConnection(conn);
+		}
+	}
+
+	public void runInTransaction(Runnable work) {
+		inTransaction(() -> {
+			work.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs work in a read-only REPEATABLE READ transaction, so every query in
+	 * it reads the same snapshot. Joins the transaction already open on this
+	 * thread, if any. The connection goes back to the pool read-write and with
+	 * its previous isolation level.
+	 */
+	public <T> T inReadOnlySnapshot(Supplier<T> work) {
+		if (primary != null) {
+			return primary.inReadOnlySnapshot(work);
+		}
+		if (transaction.get() != null) {
+			return work.get();
+		}
+		Connection conn = pool.getConnection();
+		int isolation = Connection.TRANSACTION_NONE;
+		try {
+			isolation = conn.getTransactionIsolation();
+			conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			conn.setReadOnly(true);
+			conn.setAutoCommit(false);
+			transaction.set(conn);
+			T result = work.get();
+			conn.commit();
+			return result;
+		}
+		catch (SQLException | RuntimeException e) {
+			DB.rollback(conn);
+			throw e instanceof RuntimeException ? (RuntimeException) e : translate((SQLException) e);
+		}
+		finally {
+			transaction.remove();
+			try {
+				restore(conn, isolation);
+			}
+			finally {
+				DB.closeConnection(conn);
+			}
+		}
+	}
+
+	private static void restore(Connection conn, int isolation) {
+		try {
+			conn.setAutoCommit(true);
+			conn.setReadOnly(false);
+			if (isolation != Connection.TRANSACTION_NONE) {
+				conn.setTransactionIsolation(isolation);
+			}
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+	}
+
+	private <T> T execute(Kind kind, String sql, Object[] params, int rowCount, SqlCall<T> call) {
+		Connection bound = boundConnection();
+		Connection conn = bound;
+		try {
+			if (conn == null) {
+				conn = poolFor(kind).getConnection();
+			}
+			T result = new Chain<>(kind, sql, params, rowCount, call, conn).proceed();
+			if (bound == null && (kind == Kind.UPDATE || kind == Kind.BATCH)) {
+				writer().lastWriteMillis = System.currentTimeMillis();
+			}
+			return result;
+		}
+		catch (SQLException e) {
+			throw translate(e);
+		}
+		finally {
+			if (bound == null) {
+				DB.closeConnection(conn);
+			}
+		}
+	}
+
+	//Guarda o SQLState, para quem chama separar restrio violada (classe 23) ou dado invlido (22) de uma queda
+	private static DbException translate(SQLException e) {
+		String state = e.getSQLState();
+		if (state == null && e.getNextException() != null) {
+			//Um lote informa a linha que falhou como a prxima exceo
+			state = e.getNextException().getSQLState();
+		}
+		return new DbException(e.getMessage(), state);
+	}
+
+	private JdbcTemplate writer() {
+		return primary != null ? primary : this;
+	}
+
+	private Connection boundConnection() {
+		return writer().transaction.get();
+	}
+
+	private ConnectionPool poolFor(Kind kind) {
+		if (primary == null) {
+			return pool;
+		}
+		boolean read = kind == Kind.QUERY || kind == Kind.STREAM;
+		if (!read || System.currentTimeMillis() - primary.lastWriteMillis < readYourWritesMs) {
+			return primary.pool;
+		}
+		return pool;
+	}
+
+	private static PreparedStatement prepare(Connection conn, String sql, Object[] params) throws SQLException {
+		PreparedStatement st = conn.prepareStatement(sql);
+		try {
+			bind(st, params);
+			return st;
+		}
+		catch (SQLException | RuntimeException e) {
+			st.close();
+			throw e;
+		}
+	}
+
+	//Registrado no QueryCancellation desta thread enquanto o servidor executa
+	private static ResultSet executeQuery(PreparedStatement st) throws SQLException {
+		QueryCancellation cancellation = QueryCancellation.current();
+		if (cancellation == null) {
+			return st.executeQuery();
+		}
+		cancellation.begin(st);
+		try {
+			return st.executeQuery();
+		}
+		finally {
+			cancellation.end();
+		}
+	}
+
+	private static void bind(PreparedStatement st, Object[] params) throws SQLException {
+		for (int i = 0; i < params.length; i++) {
+			st.setObject(i + 1, params[i]);
+		}
+	}
+
+	private static void closeAll(ResultSet rs, Statement st, Connection conn) {
+		try {
+			DB.closeResultSet(rs);
+		}
+		finally {
+			try {
+				DB.closeStatement(st);
+			}
+			finally {
+				DB.closeConnection(conn);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface SqlCall<T> {
+
+		T run(Connection conn) throws SQLException;
+	}
+
+	//Passa pelos interceptadores na ordem em que foram registrados e depois executa o comando
+	private class Chain<T> implements Execution<T> {
+
+		private final Kind kind;
+		private final String sql;
+		private final Object[] params;
+		private final int rowCount;
+		private final SqlCall<T> call;
+		private final Connection conn;
+		private final List<StatementInterceptor> chain = interceptors;
+		private int next;
+
+		Chain(Kind kind, String sql, Object[] params, int rowCount, SqlCall<T> call, Connection conn) {
+			this.kind = kind;
+			this.sql = sql;
+			this.params = params;
+			this.rowCount = rowCount;
+			this.call = call;
+			this.conn = conn;
+		}
+
+		@Override
+		public Kind getKind() {
+			return kind;
+		}
+
+		@Override
+		public String getSql() {
+			return sql;
+		}
+
+		@Override
+		public Object[] getParameters() {
+			return params;
+		}
+
+		@Override
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		//Um interceptador pode chamar proceed mais de uma vez (novas tentativas); cada chamada roda o resto da cadeia
+		@Override
+		public T proceed() throws SQLException {
+			int index = next;
+			if (index >= chain.size()) {
+				return call.run(conn);
+			}
+			next = index + 1;
+			try {
+				return chain.get(index).intercept(this);
+			}
+			finally {
+				next = index;
+			}
+		}
+	}
+}
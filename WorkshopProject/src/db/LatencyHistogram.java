@@ -0,0 +1,88 @@
+package db;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram over nanoseconds. Buckets are log-linear: 16
+ * per power of two, so a percentile is off by at most 1/16 of its value.
+ * Recording is a few atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(indexOf(nanos));
+		count.increment();
+		totalNanos.add(nanos);
+		long max;
+		while (nanos > (max = maxNanos.get())) {
+			if (maxNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	public LatencySnapshot snapshot(String name) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long max = maxNanos.get();
+		double mean = total == 0 ? 0.0 : totalNanos.sum() / 1e6 / total;
+		return new LatencySnapshot(name, total, mean, percentile(counts, total, 0.50, max),
+				percentile(counts, total, 0.95, max), percentile(counts, total, 0.99, max), max / 1e6);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	private static double percentile(long[] counts, long total, double quantile, long max) {
+		if (total == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(total * quantile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max) / 1e6;
+			}
+		}
+		return max / 1e6;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	//Maior valor que cai na faixa
+	static long upperBound(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_COUNT + SUB_BITS - 1;
+		int sub = index % SUB_COUNT;
+		return ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,59 @@
+package db;
+
+public class LatencySnapshot {
+
+	private final String name;
+	private final long count;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p95Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	public LatencySnapshot(String name, long count, double meanMillis, double p50Millis, double p95Millis,
+			double p99Millis, double maxMillis) {
+		this.name = name;
+		this.count = count;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p95Millis = p95Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP95Millis() {
+		return p95Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencySnapshot [name=" + name + ", count=" + count + ", meanMillis="
+				+ String.format("%.3f", meanMillis) + ", p50Millis=" + String.format("%.3f", p50Millis)
+				+ ", p95Millis=" + String.format("%.3f", p95Millis) + ", p99Millis="
+				+ String.format("%.3f", p99Millis) + ", maxMillis=" + String.format("%.3f", maxMillis) + "]";
+	}
+}
@@ -0,0 +1,103 @@
+package db;
+
+public class PoolStats {
+
+	private final int active;
+	private final int idle;
+	private final int total;
+	private final int maxSize;
+	private final int waiting;
+	private final long borrowCount;
+	private final double avgWaitMillis;
+	private final double maxWaitMillis;
+	private final long timeouts;
+	private final long leaks;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+	private final long statementCacheEvictions;
+
+	public PoolStats(int active, int idle, int total, int maxSize, int waiting, long borrowCount, double avgWaitMillis,
+			double maxWaitMillis, long timeouts, long leaks, long statementCacheHits, long statementCacheMisses,
+			long statementCacheEvictions) {
+		this.active = active;
+		this.idle = idle;
+		this.total = total;
+		this.maxSize = maxSize;
+		this.waiting = waiting;
+		this.borrowCount = borrowCount;
+		this.avgWaitMillis = avgWaitMillis;
+		this.maxWaitMillis = maxWaitMillis;
+		this.timeouts = timeouts;
+		this.leaks = leaks;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+		this.statementCacheEvictions = statementCacheEvictions;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	public double getAvgWaitMillis() {
+		return avgWaitMillis;
+	}
+
+	public double getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public long getLeaks() {
+		return leaks;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	public long getStatementCacheEvictions() {
+		return statementCacheEvictions;
+	}
+
+	public double getStatementCacheHitRatio() {
+		long lookups = statementCacheHits + statementCacheMisses;
+		return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStats [active=" + active + ", idle=" + idle + ", total=" + total + ", maxSize=" + maxSize
+				+ ", waiting=" + waiting + ", borrowCount=" + borrowCount + ", avgWaitMillis="
+				+ String.format("%.3f", avgWaitMillis) + ", maxWaitMillis=" + String.format("%.3f", maxWaitMillis)
+				+ ", timeouts=" + timeouts + ", leaks=" + leaks + ", statementCacheHits=" + statementCacheHits
+				+ ", statementCacheMisses=" + statementCacheMisses + ", statementCacheEvictions="
+				+ statementCacheEvictions + "]";
+	}
+}
@@ -0,0 +1,162 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}. Every borrow hands
+ * out a fresh proxy whose close() gives the connection back to the pool, so a
+ * stale handle kept by a caller can never close someone else's connection.
+ * Statements created through a handle are closed when it is closed.
+ */
+class PooledConnection {
+
+	private final ConnectionPool pool;
+	private final Connection raw;
+	private final long createdAt;
+	private final StatementCache statementCache;
+
+	private volatile long lastUsedAt;
+	private volatile long borrowedAt;
+	private volatile Throwable borrowTrace;
+	private volatile boolean leakReported;
+
+	PooledConnection(ConnectionPool pool, Connection raw) {
+		this.pool = pool;
+		this.raw = raw;
+		this.createdAt = System.currentTimeMillis();
+		this.lastUsedAt = createdAt;
+		this.statementCache = new StatementCache(pool, pool.getStatementCacheSize());
+	}
+
+	Connection getRaw() {
+		return raw;
+	}
+
+	long getCreatedAt() {
+		return createdAt;
+	}
+
+	long getLastUsedAt() {
+		return lastUsedAt;
+	}
+
+	long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	Throwable getBorrowTrace() {
+		return borrowTrace;
+	}
+
+	boolean isLeakReported() {
+		return leakReported;
+	}
+
+	void setLeakReported(boolean leakReported) {
+		this.leakReported = leakReported;
+	}
+
+	Connection borrow(boolean traceBorrower) {
+		borrowedAt = System.currentTimeMillis();
+		borrowTrace = traceBorrower ? new Throwable("Connection borrowed here") : null;
+		leakReported = false;
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Handle());
+	}
+
+	void returned() {
+		lastUsedAt = System.currentTimeMillis();
+		borrowedAt = 0L;
+		borrowTrace = null;
+	}
+
+	void closeQuietly() {
+		statementCache.clear();
+		try {
+			raw.close();
+		}
+		catch (SQLException e) {
+			//Uma conexo que ser descartada de qualquer forma
+		}
+	}
+
+	private class Handle implements InvocationHandler {
+
+		private volatile boolean closed;
+		//Statements que no vm do cache de statements
+		private final List<Statement> statements = new ArrayList<>();
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					closeStatements();
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			}
+			if (name.equals("isClosed")) {
+				return closed || raw.isClosed();
+			}
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (name.equals("toString")) {
+				return "PooledConnection[" + raw + (closed ? ", closed" : "") + "]";
+			}
+			if (closed) {
+				throw new SQLException("Connection has already been returned to the pool");
+			}
+			if (name.equals("prepareStatement") && statementCache.isEnabled()) {
+				Class<?>[] types = method.getParameterTypes();
+				if (types.length == 1) {
+					return statementCache.prepare(raw, (String) args[0]);
+				}
+				if (types.length == 2 && types[1] == int.class) {
+					return statementCache.prepare(raw, (String) args[0], (Integer) args[1]);
+				}
+			}
+			Object result;
+			try {
+				result = method.invoke(raw, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof Statement) {
+				synchronized (statements) {
+					statements.add((Statement) result);
+				}
+			}
+			return result;
+		}
+
+		private void closeStatements() {
+			statementCache.closeOpen();
+			synchronized (statements) {
+				for (Statement st : statements) {
+					try {
+						st.close();
+					}
+					catch (SQLException e) {
+						//A conexo est sendo devolvida de qualquer forma
+					}
+				}
+				statements.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Lets another thread stop the queries of a unit of work. The queries that
+ * {@link JdbcTemplate} runs inside {@link #run} register their statement
+ * while it executes; {@link #cancel} calls Statement.cancel on it, and every
+ * query started afterwards fails right away. Only the execution is covered:
+ * the statement is unregistered before it goes back to the statement cache,
+ * so a cancel never reaches the next borrower's query.
+ */
+public class QueryCancellation {
+
+	//SQLState de uma consulta interrompida no servidor (ER_QUERY_INTERRUPTED do MySQL)
+	static final String CANCELLED = "70100";
+
+	private static final ThreadLocal<QueryCancellation> current = new ThreadLocal<>();
+
+	private Statement running;
+	private boolean cancelled;
+
+	public <T> T run(Supplier<T> work) {
+		QueryCancellation outer = current.get();
+		current.set(this);
+		try {
+			return work.get();
+		}
+		finally {
+			if (outer == null) {
+				current.remove();
+			}
+			else {
+				current.set(outer);
+			}
+		}
+	}
+
+	public synchronized void cancel() {
+		cancelled = true;
+		if (running != null) {
+			try {
+				running.cancel();
+			}
+			catch (SQLException e) {
+				//J terminou ou foi fechado: no h o que parar
+			}
+		}
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	//O cancelamento ligado a esta thread, se houver
+	static QueryCancellation current() {
+		return current.get();
+	}
+
+	synchronized void begin(Statement st) throws SQLException {
+		if (cancelled) {
+			throw new SQLException("Query cancelled", CANCELLED);
+		}
+		running = st;
+	}
+
+	synchronized void end() {
+		running = null;
+	}
+}
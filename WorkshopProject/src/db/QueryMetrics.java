@@ -0,0 +1,141 @@
+package db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Latency histograms for every SQL statement (as a {@link StatementInterceptor})
+ * and every DAO method (fed by the timing proxy in DaoFactory). Statements
+ * slower than metrics.slowQueryMs are logged with their bind parameters.
+ */
+public class QueryMetrics implements StatementInterceptor {
+
+	private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+
+	private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+	//Limita o nmero de histogramas se quem chama monta o SQL na hora
+	private static final int MAX_KEYS = 500;
+	private static final String OTHER = "(other)";
+
+	//"IN (?, ?, ?)" de qualquer tamanho  um comando s
+	private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+	private static final int MAX_LOGGED_VALUE = 100;
+
+	private final Map<String, LatencyHistogram> statements = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> methods = new ConcurrentHashMap<>();
+	private final AtomicLong slowQueries = new AtomicLong();
+
+	private volatile long slowQueryNanos;
+
+	private QueryMetrics() {
+		slowQueryNanos = DB.getIntProperty("metrics.slowQueryMs", 500) * 1000000L;
+	}
+
+	public static QueryMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public <T> T intercept(Execution<T> execution) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return execution.proceed();
+		}
+		finally {
+			long elapsed = System.nanoTime() - start;
+			histogram(statements, normalize(execution.getSql())).record(elapsed);
+			if (slowQueryNanos > 0 && elapsed >= slowQueryNanos) {
+				slowQueries.incrementAndGet();
+				logSlowQuery(execution, elapsed);
+			}
+		}
+	}
+
+	public void recordMethod(String name, long nanos) {
+		histogram(methods, name).record(nanos);
+	}
+
+	public List<LatencySnapshot> getStatementSnapshots() {
+		return snapshots(statements);
+	}
+
+	public List<LatencySnapshot> getMethodSnapshots() {
+		return snapshots(methods);
+	}
+
+	public long getSlowQueryCount() {
+		return slowQueries.get();
+	}
+
+	public long getSlowQueryMillis() {
+		return slowQueryNanos / 1000000L;
+	}
+
+	//0 desliga o log de consultas lentas
+	public void setSlowQueryMillis(long millis) {
+		slowQueryNanos = millis * 1000000L;
+	}
+
+	public void reset() {
+		statements.clear();
+		methods.clear();
+		slowQueries.set(0);
+	}
+
+	private static LatencyHistogram histogram(Map<String, LatencyHistogram> map, String key) {
+		LatencyHistogram histogram = map.get(key);
+		if (histogram != null) {
+			return histogram;
+		}
+		if (map.size() >= MAX_KEYS) {
+			key = OTHER;
+		}
+		return map.computeIfAbsent(key, k -> new LatencyHistogram());
+	}
+
+	//Os mais usados primeiro
+	private static List<LatencySnapshot> snapshots(Map<String, LatencyHistogram> map) {
+		List<LatencySnapshot> list = new ArrayList<>(map.size());
+		for (Map.Entry<String, LatencyHistogram> entry : map.entrySet()) {
+			list.add(entry.getValue().snapshot(entry.getKey()));
+		}
+		list.sort(Comparator.comparingDouble((LatencySnapshot s) -> s.getCount() * s.getMeanMillis()).reversed());
+		return list;
+	}
+
+	private static String normalize(String sql) {
+		return sql.indexOf(',') < 0 ? sql : PLACEHOLDER_LIST.matcher(sql).replaceAll("?, ...");
+	}
+
+	private static void logSlowQuery(Execution<?> execution, long elapsed) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Slow %s (%.1fms", execution.getKind(), elapsed / 1e6));
+		if (execution.getRowCount() > 1) {
+			sb.append(", ").append(execution.getRowCount()).append(" rows");
+		}
+		sb.append("): ").append(execution.getSql());
+		Object[] params = execution.getParameters();
+		if (params.length > 0) {
+			sb.append(" [");
+			for (int i = 0; i < params.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				String value = String.valueOf(params[i]);
+				sb.append(value.length() > MAX_LOGGED_VALUE ? value.substring(0, MAX_LOGGED_VALUE) + "..." : value);
+			}
+			sb.append("]");
+		}
+		LOG.log(Level.WARNING, sb.toString());
+	}
+}
@@ -0,0 +1,93 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import db.StatementInterceptor.Kind;
+
+/**
+ * Runs EXPLAIN, on a connection of its own, for the first execution of every
+ * distinct query and collects the plans that scan a whole table or sort with
+ * a filesort. Tables estimated at no more than maxScanRows rows are left
+ * alone: a small lookup table is cheaper to scan than to index. Reads the
+ * MySQL plan format; for H2 only its tableScan marker is recognised, without
+ * a row estimate.
+ */
+public class QueryPlanChecker implements StatementInterceptor {
+
+	private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\* (\\S+)\\.tableScan");
+
+	private final ConnectionPool pool;
+	private final long maxScanRows;
+	private final Set<String> explained = ConcurrentHashMap.newKeySet();
+	private final List<String> problems = new ArrayList<>();
+
+	public QueryPlanChecker(ConnectionPool pool, long maxScanRows) {
+		this.pool = pool;
+		this.maxScanRows = maxScanRows;
+	}
+
+	@Override
+	public <T> T intercept(Execution<T> execution) throws SQLException {
+		Kind kind = execution.getKind();
+		if ((kind == Kind.QUERY || kind == Kind.STREAM) && explained.add(execution.getSql())) {
+			explain(execution.getSql(), execution.getParameters());
+		}
+		return execution.proceed();
+	}
+
+	public synchronized List<String> getProblems() {
+		return new ArrayList<>(problems);
+	}
+
+	private void explain(String sql, Object[] params) throws SQLException {
+		Connection conn = pool.getConnection();
+		try (PreparedStatement st = conn.prepareStatement("EXPLAIN " + sql)) {
+			for (int i = 0; i < params.length; i++) {
+				st.setObject(i + 1, params[i]);
+			}
+			try (ResultSet rs = st.executeQuery()) {
+				ResultSetMetaData meta = rs.getMetaData();
+				if (meta.getColumnCount() == 1) {
+					while (rs.next()) {
+						Matcher m = H2_TABLE_SCAN.matcher(rs.getString(1));
+						while (m.find()) {
+							report(sql, "full table scan on " + m.group(1));
+						}
+					}
+					return;
+				}
+				while (rs.next()) {
+					String table = rs.getString("table");
+					long rows = rs.getLong("rows");
+					String extra = rs.getString("Extra");
+					if (rows <= maxScanRows) {
+						continue;
+					}
+					if ("ALL".equals(rs.getString("type"))) {
+						report(sql, "full table scan on " + table + " (~" + rows + " rows)");
+					}
+					if (extra != null && extra.contains("Using filesort")) {
+						report(sql, "filesort on " + table + " (~" + rows + " rows)");
+					}
+				}
+			}
+		}
+		finally {
+			DB.closeConnection(conn);
+		}
+	}
+
+	private synchronized void report(String sql, String problem) {
+		problems.add(problem + ": " + sql);
+	}
+}
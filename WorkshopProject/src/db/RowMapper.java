@@ -0,0 +1,14 @@
+package db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet. Implementations built by
+ * {@link CompiledMapper} read columns by index only.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+	T mapRow(ResultSet rs) throws SQLException;
+}
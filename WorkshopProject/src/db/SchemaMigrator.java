@@ -0,0 +1,175 @@
+package db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the schema up to date on startup. The scripts under db/migration run
+ * in version order, each one once, and are recorded in schema_version. A
+ * script that was already applied is never run again; editing it afterwards
+ * only logs a checksum warning, so changes go into a new version.
+ */
+public class SchemaMigrator {
+
+	private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+	//Em ordem de verso; um script novo entra no fim
+	private static final String[] SCRIPTS = {
+			"V1__create_tables.sql",
+			"V2__change_log.sql",
+			"V3__seller_access_paths.sql",
+			"V4__payroll_report_index.sql",
+			"V5__change_log_retention.sql",
+			"V6__drop_seller_department_fk_index.sql"
+	};
+
+	private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+	//ndice que j existe, por exemplo criado  mo antes das migraes (MySQL, H2)
+	private static final int MYSQL_DUPLICATE_KEY_NAME = 1061;
+	private static final int H2_INDEX_ALREADY_EXISTS = 42111;
+
+	//ndice a remover que j no existe; o MySQL no tem DROP INDEX IF EXISTS (MySQL, H2)
+	private static final int MYSQL_CANT_DROP_KEY = 1091;
+	private static final int H2_INDEX_NOT_FOUND = 42112;
+
+	private final ConnectionPool pool;
+
+	public SchemaMigrator(ConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	//Retorna o nmero de scripts aplicados
+	public int migrate() {
+		Connection conn = pool.getConnection();
+		try (Statement st = conn.createStatement()) {
+			st.execute(
+					"CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "Version INT NOT NULL, "
+					+ "Description VARCHAR(200) NOT NULL, "
+					+ "Checksum BIGINT NOT NULL, "
+					+ "InstalledOn TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+					+ "PRIMARY KEY (Version))");
+			Map<Integer, Long> applied = appliedVersions(conn);
+
+			int count = 0;
+			for (String name : SCRIPTS) {
+				Matcher m = SCRIPT_NAME.matcher(name);
+				if (!m.matches()) {
+					throw new DbException("Invalid migration name: " + name);
+				}
+				int version = Integer.parseInt(m.group(1));
+				String script = load(name);
+				long checksum = checksum(script);
+
+				Long recorded = applied.get(version);
+				if (recorded != null) {
+					if (recorded != checksum) {
+						LOG.log(Level.WARNING, "Migration " + name + " changed after it was applied; it is not run again");
+					}
+					continue;
+				}
+				run(st, name, script);
+				if (record(conn, version, m.group(2).replace('_', ' '), checksum)) {
+					LOG.log(Level.INFO, "Applied migration " + name);
+					count++;
+				}
+			}
+			return count;
+		}
+		catch (SQLException e) {
+			throw new DbException(e.getMessage());
+		}
+		finally {
+			DB.closeConnection(conn);
+		}
+	}
+
+	private static Map<Integer, Long> appliedVersions(Connection conn) throws SQLException {
+		Map<Integer, Long> map = new HashMap<>();
+		try (Statement st = conn.createStatement();
+				ResultSet rs = st.executeQuery("SELECT Version, Checksum FROM schema_version")) {
+			while (rs.next()) {
+				map.put(rs.getInt(1), rs.getLong(2));
+			}
+		}
+		return map;
+	}
+
+	//No MySQL o DDL faz commit sozinho, ento um script no  atmico: o que falhar  corrigido e roda de novo
+	private static void run(Statement st, String name, String script) throws SQLException {
+		for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+			if (sql.trim().isEmpty()) {
+				continue;
+			}
+			try {
+				st.execute(sql);
+			}
+			catch (SQLException e) {
+				if (!isAlreadyApplied(e)) {
+					throw new DbException("Migration " + name + " failed: " + e.getMessage());
+				}
+				LOG.log(Level.INFO, "Migration " + name + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private static boolean isAlreadyApplied(SQLException e) {
+		int code = e.getErrorCode();
+		return code == MYSQL_DUPLICATE_KEY_NAME || code == H2_INDEX_ALREADY_EXISTS
+				|| code == MYSQL_CANT_DROP_KEY || code == H2_INDEX_NOT_FOUND;
+	}
+
+	//false quando outro cliente registrou a mesma verso antes
+	private static boolean record(Connection conn, int version, String description, long checksum) throws SQLException {
+		try (PreparedStatement st = conn.prepareStatement(
+				"INSERT INTO schema_version (Version, Description, Checksum) VALUES (?, ?, ?)")) {
+			st.setInt(1, version);
+			st.setString(2, description);
+			st.setLong(3, checksum);
+			st.executeUpdate();
+			return true;
+		}
+		catch (SQLException e) {
+			if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+				return false;
+			}
+			throw e;
+		}
+	}
+
+	private static String load(String name) {
+		try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + name)) {
+			if (in == null) {
+				throw new DbException("Migration not found: " + name);
+			}
+			try (Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+				return scanner.useDelimiter("\\A").next();
+			}
+		}
+		catch (IOException e) {
+			throw new DbException(e.getMessage());
+		}
+	}
+
+	//Fim de linha no conta: um checkout com CRLF bate com um com LF
+	private static long checksum(String script) {
+		CRC32 crc = new CRC32();
+		crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+}
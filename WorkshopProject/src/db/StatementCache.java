@@ -0,0 +1,191 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL
+ * text. Closing a cached statement only clears its parameters and hands it
+ * back, so the DAOs keep their prepare / close pattern unchanged. Handles
+ * still open when the connection goes back to the pool are closed, so a
+ * statement kept by a caller can't run on a connection another thread owns.
+ */
+class StatementCache {
+
+	private static final int NO_GENERATED_KEYS_FLAG = -1;
+
+	private final ConnectionPool pool;
+	private final int maxSize;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Set<Handle> open = new HashSet<>();
+
+	StatementCache(ConnectionPool pool, int maxSize) {
+		this.pool = pool;
+		this.maxSize = maxSize;
+	}
+
+	boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	synchronized PreparedStatement prepare(Connection raw, String sql) throws SQLException {
+		return prepare(raw, sql, NO_GENERATED_KEYS_FLAG);
+	}
+
+	synchronized PreparedStatement prepare(Connection raw, String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys + ":" + sql;
+		Entry entry = entries.get(key);
+		if (entry != null && !entry.inUse) {
+			pool.recordStatementHit();
+			return entry.checkOut();
+		}
+		pool.recordStatementMiss();
+		PreparedStatement st = autoGeneratedKeys == NO_GENERATED_KEYS_FLAG
+				? raw.prepareStatement(sql)
+				: raw.prepareStatement(sql, autoGeneratedKeys);
+		if (entry != null) {
+			//O mesmo SQL j est aberto nesta conexo: no compartilha, fecha de verdade ao terminar
+			Entry uncached = new Entry(st);
+			uncached.evicted = true;
+			return uncached.checkOut();
+		}
+		entry = new Entry(st);
+		entries.put(key, entry);
+		evictOverflow();
+		return entry.checkOut();
+	}
+
+	//Chamado quando a conexo volta para o pool
+	synchronized void closeOpen() {
+		for (Handle handle : new ArrayList<>(open)) {
+			handle.closed = true;
+			giveBack(handle.entry);
+		}
+		open.clear();
+	}
+
+	synchronized void clear() {
+		closeOpen();
+		for (Entry entry : entries.values()) {
+			entry.evicted = true;
+			if (!entry.inUse) {
+				entry.closeQuietly();
+			}
+		}
+		entries.clear();
+	}
+
+	private void evictOverflow() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (entries.size() > maxSize && it.hasNext()) {
+			Entry eldest = it.next();
+			if (!eldest.inUse) {
+				it.remove();
+				eldest.evicted = true;
+				eldest.closeQuietly();
+				pool.recordStatementEviction();
+			}
+		}
+	}
+
+	private synchronized void close(Handle handle) {
+		if (open.remove(handle)) {
+			giveBack(handle.entry);
+		}
+	}
+
+	private void giveBack(Entry entry) {
+		entry.inUse = false;
+		if (entry.evicted) {
+			entry.closeQuietly();
+			return;
+		}
+		try {
+			entry.raw.clearParameters();
+			entry.raw.clearBatch();
+		}
+		catch (SQLException e) {
+			entries.values().remove(entry);
+			entry.evicted = true;
+			entry.closeQuietly();
+		}
+	}
+
+	private class Entry {
+
+		private final PreparedStatement raw;
+		private boolean inUse;
+		private boolean evicted;
+
+		Entry(PreparedStatement raw) {
+			this.raw = raw;
+		}
+
+		PreparedStatement checkOut() {
+			inUse = true;
+			Handle handle = new Handle(this);
+			open.add(handle);
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, handle);
+		}
+
+		void closeQuietly() {
+			try {
+				raw.close();
+			}
+			catch (SQLException e) {
+				//O statement ser descartado de qualquer forma
+			}
+		}
+	}
+
+	private class Handle implements InvocationHandler {
+
+		private final Entry entry;
+		private volatile boolean closed;
+
+		Handle(Entry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					close(this);
+				}
+				return null;
+			}
+			if (name.equals("isClosed")) {
+				return closed;
+			}
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (closed) {
+				throw new SQLException("Statement is closed");
+			}
+			try {
+				return method.invoke(entry.raw, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package db;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps every statement run through {@link JdbcTemplate}. An interceptor can
+ * time or count the call around {@link Execution#proceed()}, retry it, or
+ * return a result without proceeding (e.g. from a cache).
+ */
+public interface StatementInterceptor {
+
+	<T> T intercept(Execution<T> execution) throws SQLException;
+
+	enum Kind {
+		QUERY, UPDATE, BATCH, STREAM
+	}
+
+	interface Execution<T> {
+
+		Kind getKind();
+
+		String getSql();
+
+		//Vazio nos lotes, que ligam uma linha de cada vez
+		Object[] getParameters();
+
+		//Linhas enviadas por um lote, 1 nos outros casos
+		int getRowCount();
+
+		T proceed() throws SQLException;
+	}
+}
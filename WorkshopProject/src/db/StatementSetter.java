@@ -0,0 +1,13 @@
+package db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds one item of a batch to the statement parameters.
+ */
+@FunctionalInterface
+public interface StatementSetter<T> {
+
+	void setValues(PreparedStatement st, T item) throws SQLException;
+}
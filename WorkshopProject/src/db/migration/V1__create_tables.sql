@@ -0,0 +1,18 @@
+-- Tables used by the DAOs. IF NOT EXISTS adopts a database created before
+-- the migrations existed.
+CREATE TABLE IF NOT EXISTS department (
+  Id INT NOT NULL AUTO_INCREMENT,
+  Name VARCHAR(60) DEFAULT NULL,
+  PRIMARY KEY (Id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS seller (
+  Id INT NOT NULL AUTO_INCREMENT,
+  Name VARCHAR(60) NOT NULL,
+  Email VARCHAR(100) NOT NULL,
+  BirthDate DATETIME NOT NULL,
+  BaseSalary DOUBLE NOT NULL,
+  DepartmentId INT NOT NULL,
+  PRIMARY KEY (Id),
+  FOREIGN KEY (DepartmentId) REFERENCES department (Id)
+) ENGINE=InnoDB;
@@ -0,0 +1,12 @@
+-- Written by the DAOs in the same transaction as each insert, update or delete.
+-- Other clients poll it past their last seen Id to refresh only the changed rows.
+CREATE TABLE IF NOT EXISTS change_log (
+  Id BIGINT NOT NULL AUTO_INCREMENT,
+  EntityType VARCHAR(20) NOT NULL,
+  EntityId INT NOT NULL,
+  Operation CHAR(1) NOT NULL,
+  ClientId CHAR(36) NOT NULL,
+  ChangedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (Id),
+  KEY IX_change_log_entity (EntityType, Id)
+) ENGINE=InnoDB;
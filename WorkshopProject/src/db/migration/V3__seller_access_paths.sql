@@ -0,0 +1,10 @@
+-- Access paths of the DAO queries. Name, Id serves ORDER BY Name and the keyset
+-- paging of the seller list (ORDER BY Name, Id); DepartmentId, Name, Id serves
+-- findByDepartment (WHERE DepartmentId = ? ORDER BY Name) and the join to
+-- department; the others back the optional SellerDao.search filters.
+CREATE INDEX IX_seller_name_id ON seller (Name, Id);
+CREATE INDEX IX_seller_email ON seller (Email);
+CREATE INDEX IX_seller_department_name ON seller (DepartmentId, Name, Id);
+CREATE INDEX IX_seller_salary ON seller (BaseSalary);
+CREATE INDEX IX_seller_birthdate ON seller (BirthDate);
+CREATE INDEX IX_department_name ON department (Name);
@@ -0,0 +1,3 @@
+-- Covering index for the payroll report (ReportDao.departmentPayroll): the
+-- GROUP BY DepartmentId and the BaseSalary aggregates read only the index.
+CREATE INDEX IX_seller_department_salary ON seller (DepartmentId, BaseSalary);
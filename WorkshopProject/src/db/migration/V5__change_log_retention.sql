@@ -0,0 +1,4 @@
+-- Access path of the change_log reads by time: the start of a poller's commit
+-- grace window (ChangeLogDao.currentReadCursor) and the retention delete
+-- (ChangeLogDao.deleteOlderThan).
+CREATE INDEX IX_change_log_changed ON change_log (ChangedAt);
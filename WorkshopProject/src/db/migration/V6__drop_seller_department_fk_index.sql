@@ -0,0 +1,10 @@
+-- The foreign key seller.DepartmentId needs an index leading with the column.
+-- V3 (DepartmentId, Name, Id) and V4 (DepartmentId, BaseSalary) both lead
+-- with it and both stay: the first serves findByDepartment's ORDER BY Name,
+-- the second covers the payroll report. The single-column index MySQL
+-- created for the constraint in V1 is then redundant. InnoDB drops that
+-- implicit index by itself when V3 creates one it can use; a database
+-- created by hand may still have it as an explicit KEY, dropped here. When
+-- it is already gone the migrator skips the "can't drop" error. H2 keeps
+-- its own constraint index, which has no fixed name.
+DROP INDEX DepartmentId ON seller;
@@ -7,10 +7,11 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
 import gui.util.Constraints;
+import gui.util.Resettable;
 import gui.util.Utils;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -18,18 +19,20 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import model.entities.Department;
 import model.exception.ValidationException;
 import model.services.DepartmentService;
 
-public class DepartmentFormController implements Initializable{
+public class DepartmentFormController implements Initializable, Resettable {
 	
 	private Department entity;
 
 	private DepartmentService service;
 	
-	private List<DataChangeListener> dataChangeListeners = new ArrayList<>();
+	private List<DataChangeListener<Department>> dataChangeListeners = new ArrayList<>();
 	
 	@FXML
 	private TextField txtId;
@@ -45,6 +48,9 @@ public class DepartmentFormController implements Initializable{
 
 	@FXML
 	private Button btCancel;
+	
+	@FXML
+	private ProgressIndicator progressIndicator;
 
 	@Override
 	public void initialize(URL url, ResourceBundle rb) {
@@ -65,7 +71,7 @@ public class DepartmentFormController implements Initializable{
 		this.service = service;
 	}
 	
-	public void subscribeDataChangeListener(DataChangeListener listener) {
+	public void subscribeDataChangeListener(DataChangeListener<Department> listener) {
 		dataChangeListeners.add(listener);
 	}
 	
@@ -79,21 +85,49 @@ public class DepartmentFormController implements Initializable{
 		}
 		try {
 			entity = getFormData();
-			service.saveOrUpdate(entity);
-			notifyDataChangeListeners();
-			Utils.currentStage(event).close();//Fechar janela aps salvar
-		}
-		catch(DbException e) {
-			Alerts.showAlert("Erro ao salvar o departamento", null , e.getMessage(), AlertType.ERROR);
 		}
 		catch(ValidationException e) {
 			setErrorMessages(e.getErrors());
+			return;
 		}
+		Stage stage = Utils.currentStage(event);
+		//Salvar sem mudar nada s fecha a janela
+		if(entity.getId() != null && !entity.isDirty()) {
+			stage.close();
+			return;
+		}
+		Department saved = entity;
+		DataChangeEvent.Type type = saved.getId() == null ? DataChangeEvent.Type.INSERTED : DataChangeEvent.Type.UPDATED;
+		setSaving(true);
+		service.saveOrUpdateAsync(entity).whenCompleteAsync((v, ex) -> {
+			setSaving(false);
+			if(ex != null) {
+				Alerts.showAlert("Erro ao salvar o departamento", null , Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+				return;
+			}
+			notifyDataChangeListeners(new DataChangeEvent<>(type, saved));
+			stage.close();//Fechar janela aps salvar
+		}, Utils.fxExecutor());
+	}
+	
+	private void setSaving(boolean saving) {
+		btSave.setDisable(saving);
+		progressIndicator.setVisible(saving);
 	}
 	
-	private void notifyDataChangeListeners() {
-		for(DataChangeListener listener :  dataChangeListeners) {
-			listener.onDataChanged();
+	@Override
+	public void resetState() {
+		entity = null;
+		dataChangeListeners.clear();
+		setSaving(false);
+		lbErro.setText("");
+		txtId.clear();
+		txtName.clear();
+	}
+	
+	private void notifyDataChangeListeners(DataChangeEvent<Department> event) {
+		for(DataChangeListener<Department> listener :  dataChangeListeners) {
+			listener.onDataChanged(event);
 		}
 		
 	}
@@ -122,6 +156,10 @@ public class DepartmentFormController implements Initializable{
 			exception.addError("nome", "  O campo no pode ser vazio !!");
 		}
 		dp.setName(txtName.getText());
+		//Compara com o departamento carregado para saber se mudou
+		if(entity.getId() != null) {
+			dp.trackChangesFrom(entity);
+		}
 		if(exception.getErrors().size() > 0) {
 			throw exception;
 		}
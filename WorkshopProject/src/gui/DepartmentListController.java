@@ -2,37 +2,49 @@ package gui;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
 import application.Main;
-import db.DbIntegrityException;
+import application.Startup;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.Resettable;
 import gui.util.Utils;
+import gui.util.ViewCache;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
+import model.dao.ChangeSet;
 import model.entities.Department;
+import model.services.ChangePoller;
 import model.services.DepartmentService;
 
-public class DepartmentListController implements Initializable, DataChangeListener {
+public class DepartmentListController implements Initializable, DataChangeListener<Department>, Resettable {
+	
+	//Mesma ordem do banco (ORDER BY Name)
+	private static final Comparator<Department> ORDER = Comparator.comparing(Department::getName, Utils.nameOrder());
 	
 	private DepartmentService service;
 
@@ -55,8 +67,18 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	@FXML 
 	private Button btNew;
 	
+	@FXML
+	private Button btRemoveSelected;
+	
+	@FXML
+	private ProgressIndicator progressIndicator;
+	
 	private ObservableList<Department> obsList;
 	
+	private ChangePoller<Department> poller;
+	
+	private BooleanProperty busy = new SimpleBooleanProperty(false);
+	
 	
 	@Override
 	public void initialize(URL url, ResourceBundle rb) {
@@ -78,6 +100,43 @@ public class DepartmentListController implements Initializable, DataChangeListen
 		Stage stage = (Stage)Main.getMainScene().getWindow();
 		tableViewDepartment.prefHeightProperty().bind(stage.heightProperty());
 		
+		progressIndicator.visibleProperty().bind(busy);
+		
+		tableViewDepartment.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+		btRemoveSelected.disableProperty().bind(tableViewDepartment.getSelectionModel().selectedItemProperty().isNull());
+		
+		initEditButtons();
+		initRemoveButton();
+	}
+	
+	@FXML
+	public void onBtRemoveSelectedAction(ActionEvent event) {
+		List<Department> selected = new ArrayList<>();
+		for(Department obj : tableViewDepartment.getSelectionModel().getSelectedItems()) {
+			if(obj != null) {
+				selected.add(obj);
+			}
+		}
+		if(selected.isEmpty()) {
+			return;
+		}
+		Optional<ButtonType> result = Alerts.showConfirmation("Confimao", "Tem certeza que voc quer deletar " + selected.size() + " departamentos?");
+		
+		if(result.get() == ButtonType.OK) {
+			if(service == null) {
+				throw new IllegalStateException("Service was null");
+			}
+			busy.set(true);
+			service.removeAllAsync(selected).whenCompleteAsync((v, ex) -> {
+				busy.set(false);
+				if(ex != null) {
+					Alerts.showAlert("Erro ao remover", null, Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+					return;
+				}
+				tableViewDepartment.getSelectionModel().clearSelection();
+				obsList.removeAll(selected);
+			}, Utils.fxExecutor());
+		}
 	}
 	
 	public void setDepartmentService(DepartmentService service) {
@@ -88,32 +147,62 @@ public class DepartmentListController implements Initializable, DataChangeListen
 		if(service == null) {
 			throw new IllegalStateException("O servio est nulo");
 		}
-		List<Department> list = service.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewDepartment.setItems(obsList);
-		initEditButtons();
-		initRemoveButton();
+		startSync();
+		busy.set(true);
+		service.findAllAsync().whenCompleteAsync((list, ex) -> {
+			busy.set(false);
+			if(ex != null) {
+				String msg = Utils.unwrap(ex).getMessage();
+				tableViewDepartment.setPlaceholder(new Label("Erro ao carregar os departamentos: " + msg));
+				Alerts.showAlert("Erro !!", "Erro ao carregar os departamentos", msg, AlertType.ERROR);
+				return;
+			}
+			obsList = FXCollections.observableArrayList(list);
+			tableViewDepartment.setItems(obsList);
+			Startup.firstData("departamentos");
+		}, Utils.fxExecutor());
+	}
+	
+	//Traz as alteraes de outros clientes enquanto a tela estiver aberta
+	private void startSync() {
+		if(poller != null) {
+			return;
+		}
+		poller = new ChangePoller<>(service::findChangedSince, changes -> Utils.fxExecutor().execute(() -> applyChanges(changes)));
+		poller.start();
+		tableViewDepartment.sceneProperty().addListener((obs, oldScene, newScene) -> {
+			if(newScene == null) {
+				poller.stop();
+			}
+			else {
+				poller.start();
+			}
+		});
+	}
+	
+	private void applyChanges(ChangeSet<Department> changes) {
+		if(obsList == null) {
+			return;
+		}
+		for(Department obj : changes.getDeleted()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+		}
+		for(Department obj : changes.getUpdated()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.UPDATED, obj));
+		}
+		for(Department obj : changes.getInserted()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.INSERTED, obj));
+		}
 	}
 	
 	private void createDialogForm(Department obj, String absoluteName, Stage parentStage) {
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			Pane pane = loader.load();
-			
-			DepartmentFormController controller = loader.getController();
-			controller.setDepartment(obj);
-			controller.setDepartmentService(new DepartmentService());
-			controller.subscribeDataChangeListener(this);
-			controller.updateFormData();
-			
-			Stage dialogStage = new Stage();
-			dialogStage.setTitle("Registrar departamento");
-			dialogStage.setScene(new Scene(pane));
-			dialogStage.setResizable(false);//Diz se a janela pode ou no ser redimencionada
-			dialogStage.initOwner(parentStage);
-			dialogStage.initModality(Modality.WINDOW_MODAL);//Trava a tela, enquanto voc no fechar ela vc no usa outra
-			dialogStage.showAndWait();
-			
+			ViewCache.<DepartmentFormController>showDialog(absoluteName, "Registrar departamento", parentStage, controller -> {
+				controller.setDepartment(obj);
+				controller.setDepartmentService(DepartmentService.getInstance());
+				controller.subscribeDataChangeListener(this);
+				controller.updateFormData();
+			});
 		}
 		catch(IOException e) {
 			e.printStackTrace();
@@ -122,9 +211,40 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	}
 
 	@Override
-	public void onDataChanged() {
-		updateTableView();
-		
+	public void resetState() {
+		tableViewDepartment.getSelectionModel().clearSelection();
+		tableViewDepartment.scrollTo(0);
+	}
+
+	//Atualiza so a linha afetada, sem recarregar a tabela
+	@Override
+	public void onDataChanged(DataChangeEvent<Department> event) {
+		if(obsList == null) {
+			updateTableView();
+			return;
+		}
+		Department obj = event.getEntity();
+		int index = event.getType() == DataChangeEvent.Type.INSERTED ? -1 : obsList.indexOf(obj);
+		if(event.getType() == DataChangeEvent.Type.DELETED) {
+			if(index >= 0) {
+				obsList.remove(index);
+			}
+			return;
+		}
+		if(index >= 0 && inOrderAt(index, obj)) {
+			obsList.set(index, obj);
+			return;
+		}
+		if(index >= 0) {
+			obsList.remove(index);
+		}
+		int pos = Collections.binarySearch(obsList, obj, ORDER);
+		obsList.add(pos < 0 ? -pos - 1 : pos, obj);
+	}
+	
+	private boolean inOrderAt(int index, Department obj) {
+		return (index == 0 || ORDER.compare(obsList.get(index - 1), obj) <= 0)
+				&& (index == obsList.size() - 1 || ORDER.compare(obj, obsList.get(index + 1)) <= 0);
 	}
 	
 	//Boto de editar ////////////////////////
@@ -180,13 +300,15 @@ public class DepartmentListController implements Initializable, DataChangeListen
 			if(service == null) {
 				throw new IllegalStateException("Service was null");
 			}
-			try {
-				service.remove(obj);
-				updateTableView();
-			}
-			catch(DbIntegrityException e) {
-				Alerts.showAlert("Erro ao remover", null, e.getMessage(), AlertType.ERROR);
-			}
+			busy.set(true);
+			service.removeAsync(obj).whenCompleteAsync((v, ex) -> {
+				busy.set(false);
+				if(ex != null) {
+					Alerts.showAlert("Erro ao remover", null, Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+					return;
+				}
+				onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+			}, Utils.fxExecutor());
 		}
 		
 		
@@ -0,0 +1,183 @@
+package gui;
+
+import java.net.URL;
+import java.util.ResourceBundle;
+
+import db.ConnectionPool;
+import db.DB;
+import db.LatencySnapshot;
+import db.PoolStats;
+import db.QueryMetrics;
+import gui.util.Utils;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Duration;
+import model.dao.impl.DepartmentCache;
+import model.entities.Seller;
+import model.services.EntityCache;
+import model.services.ReportService;
+import model.services.SellerService;
+
+public class DiagnosticsController implements Initializable {
+	
+	private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+	
+	private QueryMetrics metrics = QueryMetrics.getInstance();
+	
+	private Timeline refresher;
+	
+	@FXML
+	private Button btReset;
+	
+	@FXML
+	private Label labelSlowQueries;
+	
+	@FXML
+	private Label labelPool;
+	
+	@FXML
+	private Label labelStatementCache;
+	
+	@FXML
+	private Label labelEntityCaches;
+	
+	@FXML
+	private TableView<LatencySnapshot> tableViewMethods;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, String> tableColumnMethodName;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Long> tableColumnMethodCount;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnMethodMean;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnMethodP50;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnMethodP95;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnMethodP99;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnMethodMax;
+	
+	@FXML
+	private TableView<LatencySnapshot> tableViewStatements;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, String> tableColumnStatementSql;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Long> tableColumnStatementCount;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnStatementMean;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnStatementP50;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnStatementP95;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnStatementP99;
+	
+	@FXML
+	private TableColumn<LatencySnapshot, Double> tableColumnStatementMax;
+	
+	@FXML
+	public void onBtResetAction() {
+		metrics.reset();
+		refresh();
+	}
+	
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		initializaNodes();
+	}
+	
+	private void initializaNodes() {
+		setupColumns(tableColumnMethodName, tableColumnMethodCount, tableColumnMethodMean, tableColumnMethodP50,
+				tableColumnMethodP95, tableColumnMethodP99, tableColumnMethodMax);
+		setupColumns(tableColumnStatementSql, tableColumnStatementCount, tableColumnStatementMean, tableColumnStatementP50,
+				tableColumnStatementP95, tableColumnStatementP99, tableColumnStatementMax);
+		
+		refresher = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+		refresher.setCycleCount(Animation.INDEFINITE);
+		//S atualiza enquanto a tela estiver aberta
+		tableViewMethods.sceneProperty().addListener((obs, oldScene, newScene) -> {
+			if(newScene == null) {
+				refresher.stop();
+			}
+			else {
+				refresh();
+				refresher.play();
+			}
+		});
+	}
+	
+	private void setupColumns(TableColumn<LatencySnapshot, String> name, TableColumn<LatencySnapshot, Long> count,
+			TableColumn<LatencySnapshot, Double> mean, TableColumn<LatencySnapshot, Double> p50,
+			TableColumn<LatencySnapshot, Double> p95, TableColumn<LatencySnapshot, Double> p99,
+			TableColumn<LatencySnapshot, Double> max) {
+		name.setCellValueFactory(new PropertyValueFactory<>("name"));
+		count.setCellValueFactory(new PropertyValueFactory<>("count"));
+		mean.setCellValueFactory(new PropertyValueFactory<>("meanMillis"));
+		p50.setCellValueFactory(new PropertyValueFactory<>("p50Millis"));
+		p95.setCellValueFactory(new PropertyValueFactory<>("p95Millis"));
+		p99.setCellValueFactory(new PropertyValueFactory<>("p99Millis"));
+		max.setCellValueFactory(new PropertyValueFactory<>("maxMillis"));
+		Utils.formatTableColumnDouble(mean, 2);
+		Utils.formatTableColumnDouble(p50, 2);
+		Utils.formatTableColumnDouble(p95, 2);
+		Utils.formatTableColumnDouble(p99, 2);
+		Utils.formatTableColumnDouble(max, 2);
+	}
+	
+	//Tudo vem de contadores em memria, nenhuma consulta ao banco
+	private void refresh() {
+		tableViewMethods.setItems(FXCollections.observableArrayList(metrics.getMethodSnapshots()));
+		tableViewStatements.setItems(FXCollections.observableArrayList(metrics.getStatementSnapshots()));
+		
+		labelSlowQueries.setText(String.format("Consultas lentas (>= %d ms): %d",
+				metrics.getSlowQueryMillis(), metrics.getSlowQueryCount()));
+		
+		PoolStats pool = DB.getPool().getStats();
+		labelPool.setText(String.format(
+				"Conexes: %d em uso, %d livres, %d/%d abertas, %d aguardando | espera mdia %.2f ms, mx %.2f ms | timeouts %d, vazamentos %d",
+				pool.getActive(), pool.getIdle(), pool.getTotal(), pool.getMaxSize(), pool.getWaiting(),
+				pool.getAvgWaitMillis(), pool.getMaxWaitMillis(), pool.getTimeouts(), pool.getLeaks()));
+		ConnectionPool readPool = DB.getReadPool();
+		if(readPool != null) {
+			PoolStats replica = readPool.getStats();
+			labelPool.setText(labelPool.getText() + String.format(" | rplica: %d em uso, %d livres, %d aguardando, timeouts %d",
+					replica.getActive(), replica.getIdle(), replica.getWaiting(), replica.getTimeouts()));
+		}
+		labelStatementCache.setText(String.format(
+				"Cache de comandos: %d acertos, %d faltas, %d descartes (%.1f%% de acerto)",
+				pool.getStatementCacheHits(), pool.getStatementCacheMisses(), pool.getStatementCacheEvictions(),
+				pool.getStatementCacheHitRatio() * 100));
+		
+		EntityCache<Integer, Seller> sellers = SellerService.getCache();
+		DepartmentCache departments = DepartmentCache.getInstance();
+		labelEntityCaches.setText(String.format(
+				"Cache de vendedores: %d itens, %.1f%% de acerto, %d descartes | Cache de departamentos: %d itens, %d acertos, %d faltas"
+				+ " | Relatrio de folha: %d acertos, %d reclculos",
+				sellers.size(), sellers.getHitRate() * 100, sellers.getEvictions(),
+				departments.size(), departments.getHits(), departments.getMisses(),
+				ReportService.getCacheHits(), ReportService.getCacheMisses()));
+	}
+}
@@ -4,11 +4,14 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import application.Main;
 import gui.util.Alerts;
+import gui.util.Utils;
+import gui.util.ViewCache;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
+
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -17,7 +20,9 @@ import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.VBox;
 import model.services.DepartmentService;
+import model.services.ReportService;
 import model.services.SellerService;
+import model.services.ServiceExecutor;
 
 public class MainController implements Initializable {
 
@@ -27,6 +32,12 @@ public class MainController implements Initializable {
 	@FXML
 	private MenuItem menuItemDepartment;
 
+	@FXML
+	private MenuItem menuItemPayrollReport;
+
+	@FXML
+	private MenuItem menuItemDiagnostics;
+
 	@FXML
 	private MenuItem menuItemAbout;
 
@@ -38,18 +49,48 @@ public class MainController implements Initializable {
 	@FXML
 	public void onMenuItemSeller() {
 		loadView("/gui/FXMLSellerList.fxml", (SellerListController controller) -> {
-			controller.setSellerService(new SellerService());
-			controller.updateTableView();//Mostrar os vendedores j registrados 
+			withService(SellerService::getInstance, service -> {
+				controller.setSellerService(service);
+				controller.updateTableView();//Mostrar os vendedores j registrados 
+			});
 		});
 	}
 
 	@FXML
 	public void onMenuItemDepartment() {
 		loadView("/gui/FXMLDepartmentList.fxml", (DepartmentListController controller) -> {
-			controller.setDepartmentService(new DepartmentService());
-			controller.updateTableView();//Mostrar os departamentos j registrados 
+			withService(DepartmentService::getInstance, service -> {
+				controller.setDepartmentService(service);
+				controller.updateTableView();//Mostrar os departamentos j registrados 
+			});
+		});
+	}
+
+	@FXML
+	public void onMenuItemPayrollReport() {
+		loadView("/gui/FXMLPayrollReport.fxml", (PayrollReportController controller) -> {
+			withService(ReportService::getInstance, service -> {
+				controller.setReportService(service);
+				controller.updateReport();
+			});
 		});
 	}
+	
+	//O servio  pego fora da thread do JavaFX: se o aquecimento ainda no abriu o pool, quem espera  a outra thread
+	private <S> void withService(Supplier<S> service, Consumer<S> action) {
+		ServiceExecutor.supplyAsync(service).whenCompleteAsync((obj, ex) -> {
+			if(ex != null) {
+				Alerts.showAlert("Erro !!", "Erro ao conectar ao banco de dados", Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+				return;
+			}
+			action.accept(obj);
+		}, Utils.fxExecutor());
+	}
+
+	@FXML
+	public void onMenuItemDiagnostics() {
+		loadView("/gui/FXMLDiagnostics.fxml", x -> {});//A tela se atualiza sozinha enquanto estiver aberta
+	}
 
 	@FXML
 	public void onMenuItemAbout() {
@@ -57,10 +98,10 @@ public class MainController implements Initializable {
 	}
 
 	//como synchronized voc garante que durante o processo ele no vai ser interrompido durante o multi-Thread
+	//O FXML  lido s na primeira vez: depois a mesma tela (ns e controller) volta do cache
 	private synchronized <T> void loadView(String absoluteName, Consumer<T> initializingAction) {
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			VBox newVbox = loader.load();
+			ViewCache.View<T> view = ViewCache.getView(absoluteName);
 			
 			Scene mainScene = Main.getMainScene();
 			
@@ -68,10 +109,10 @@ public class MainController implements Initializable {
 			Node mainMenu = mainVbox.getChildren().get(0);
 			mainVbox.getChildren().clear();
 			mainVbox.getChildren().add(mainMenu);
-			mainVbox.getChildren().addAll(newVbox.getChildren());
+			mainVbox.getChildren().addAll(view.getContent());
 			
 			//Esses comandos ir executar a funo que voc passar como argumento no metodo (initializingAction)
-			T controller = loader.getController();
+			T controller = view.getController();
 			initializingAction.accept(controller);
 			
 		} catch (IOException e) {
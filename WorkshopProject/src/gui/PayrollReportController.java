@@ -0,0 +1,125 @@
+package gui;
+
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.ResourceBundle;
+
+import application.Startup;
+import gui.util.Alerts;
+import gui.util.Utils;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import model.dao.PayrollReport;
+import model.entities.DepartmentPayroll;
+import model.services.ReportService;
+
+public class PayrollReportController implements Initializable {
+
+	private ReportService service;
+
+	@FXML
+	private Button btRefresh;
+
+	@FXML
+	private ProgressIndicator progressIndicator;
+
+	@FXML
+	private Label labelGeneratedAt;
+
+	@FXML
+	private Label labelTotals;
+
+	@FXML
+	private TableView<DepartmentPayroll> tableViewPayroll;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, String> tableColumnDepartment;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, Integer> tableColumnHeadcount;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, Double> tableColumnTotal;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, Double> tableColumnAverage;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, Double> tableColumnMin;
+
+	@FXML
+	private TableColumn<DepartmentPayroll, Double> tableColumnMax;
+
+	private BooleanProperty busy = new SimpleBooleanProperty(false);
+
+	@FXML
+	public void onBtRefreshAction() {
+		updateReport();
+	}
+
+	public void setReportService(ReportService service) {
+		this.service = service;
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		initializaNodes();
+	}
+
+	private void initializaNodes() {
+		tableColumnDepartment.setCellValueFactory(new PropertyValueFactory<>("departmentName"));
+		tableColumnHeadcount.setCellValueFactory(new PropertyValueFactory<>("headcount"));
+		tableColumnTotal.setCellValueFactory(new PropertyValueFactory<>("totalSalary"));
+		tableColumnAverage.setCellValueFactory(new PropertyValueFactory<>("averageSalary"));
+		tableColumnMin.setCellValueFactory(new PropertyValueFactory<>("minSalary"));
+		tableColumnMax.setCellValueFactory(new PropertyValueFactory<>("maxSalary"));
+		Utils.formatTableColumnDouble(tableColumnTotal, 2);
+		Utils.formatTableColumnDouble(tableColumnAverage, 2);
+		Utils.formatTableColumnDouble(tableColumnMin, 2);
+		Utils.formatTableColumnDouble(tableColumnMax, 2);
+
+		progressIndicator.visibleProperty().bind(busy);
+		btRefresh.disableProperty().bind(busy);
+	}
+
+	//A soma  feita no banco; se nada mudou desde o ltimo clculo vem do cache
+	public void updateReport() {
+		if(service == null) {
+			throw new IllegalStateException("O servio est nulo");
+		}
+		busy.set(true);
+		service.departmentPayrollAsync().whenCompleteAsync((report, ex) -> {
+			busy.set(false);
+			if(ex != null) {
+				String msg = Utils.unwrap(ex).getMessage();
+				tableViewPayroll.setPlaceholder(new Label("Erro ao gerar o relatrio: " + msg));
+				Alerts.showAlert("Erro !!", "Erro ao gerar o relatrio", msg, AlertType.ERROR);
+				return;
+			}
+			tableViewPayroll.setItems(FXCollections.observableArrayList(report.getDepartments()));
+			showTotals(report);
+			Startup.firstData("relatrio");
+		}, Utils.fxExecutor());
+	}
+
+	private void showTotals(PayrollReport report) {
+		labelGeneratedAt.setText("Gerado em " + new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(report.getGeneratedAt()));
+		labelTotals.setText(String.format("Total: %d vendedores | folha %.2f | mdia %s | mnimo %s | mximo %s",
+				report.getHeadcount(), report.getTotalSalary(), format(report.getAverageSalary()),
+				format(report.getMinSalary()), format(report.getMaxSalary())));
+	}
+
+	private static String format(Double value) {
+		return value == null ? "-" : String.format("%.2f", value);
+	}
+}
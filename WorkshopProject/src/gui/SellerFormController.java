@@ -4,20 +4,20 @@ import java.net.URL;
 import java.sql.Date;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
 import gui.util.Constraints;
+import gui.util.Resettable;
 import gui.util.Utils;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -31,15 +31,19 @@ import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import javafx.util.Callback;
 import model.entities.Department;
 import model.entities.Seller;
 import model.exception.ValidationException;
 import model.services.DepartmentService;
 import model.services.SellerService;
+import model.services.SellerValidator;
+import model.services.SellerWriteBehind;
 
-public class SellerFormController implements Initializable {
+public class SellerFormController implements Initializable, Resettable {
 
 	private Seller entity;
 
@@ -47,7 +51,7 @@ public class SellerFormController implements Initializable {
 
 	private DepartmentService departmentService;
 
-	private List<DataChangeListener> dataChangeListeners = new ArrayList<>();
+	private List<DataChangeListener<Seller>> dataChangeListeners = new ArrayList<>();
 
 	@FXML
 	private TextField txtId;
@@ -87,6 +91,9 @@ public class SellerFormController implements Initializable {
 	@FXML
 	private Button btCancel;
 
+	@FXML
+	private ProgressIndicator progressIndicator;
+
 	@Override
 	public void initialize(URL url, ResourceBundle rb) {
 		initializeNodes();
@@ -111,7 +118,7 @@ public class SellerFormController implements Initializable {
 		this.departmentService = departmentService;
 	}
 
-	public void subscribeDataChangeListener(DataChangeListener listener) {
+	public void subscribeDataChangeListener(DataChangeListener<Seller> listener) {
 		dataChangeListeners.add(listener);
 	}
 
@@ -123,21 +130,61 @@ public class SellerFormController implements Initializable {
 		if (service == null) {
 			throw new IllegalStateException("Service is null");
 		}
+		Seller previous = entity;
 		try {
 			entity = getFormData();
-			service.saveOrUpdate(entity);
-			notifyDataChangeListeners();
-			Utils.currentStage(event).close();// Fechar janela aps salvar
-		} catch (DbException e) {
-			Alerts.showAlert("Erro ao salvar o departamento", null, e.getMessage(), AlertType.ERROR);
 		} catch (ValidationException e) {
 			setErrorMessages(e.getErrors());
+			return;
+		}
+		Stage stage = Utils.currentStage(event);
+		//Salvar sem mudar nada s fecha a janela
+		if (entity.getId() != null && !entity.isDirty()) {
+			stage.close();
+			return;
+		}
+		DataChangeEvent.Type type = entity.getId() == null ? DataChangeEvent.Type.INSERTED : DataChangeEvent.Type.UPDATED;
+		//Com write-behind a edio j vai para a tabela e a janela fecha; vendedor novo precisa do id do banco
+		if (SellerWriteBehind.isEnabled() && entity.getId() != null) {
+			notifyDataChangeListeners(new DataChangeEvent<>(type, service.saveBehind(entity, previous)));
+			stage.close();
+			return;
 		}
+		setSaving(true);
+		service.saveOrUpdateAsync(entity).whenCompleteAsync((saved, ex) -> {
+			setSaving(false);
+			if (ex != null) {
+				Alerts.showAlert("Erro ao salvar o vendedor", null, Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+				return;
+			}
+			notifyDataChangeListeners(new DataChangeEvent<>(type, saved));
+			stage.close();// Fechar janela aps salvar
+		}, Utils.fxExecutor());
+	}
+
+	private void setSaving(boolean saving) {
+		btSave.setDisable(saving);
+		progressIndicator.setVisible(saving);
 	}
 
-	private void notifyDataChangeListeners() {
-		for (DataChangeListener listener : dataChangeListeners) {
-			listener.onDataChanged();
+	//O formulrio volta para o pool sem o vendedor, os erros e quem estava escutando da ltima vez
+	@Override
+	public void resetState() {
+		entity = null;
+		dataChangeListeners.clear();
+		setSaving(false);
+		setErrorMessages(Collections.emptyMap());
+		txtId.clear();
+		txtName.clear();
+		txtEmail.clear();
+		dpBirthDate.setValue(null);
+		txtSalary.clear();
+		comboBoxDepartment.setValue(null);
+	}
+
+	private void notifyDataChangeListeners(DataChangeEvent<Seller> event) {
+		for (DataChangeListener<Seller> listener : dataChangeListeners) {
+			listener.onDataChanged(event);
 		}
 
 	}
@@ -156,14 +203,12 @@ public class SellerFormController implements Initializable {
 		txtEmail.setText(String.valueOf(entity.getEmail()));
 
 		if (entity.getBirthDate() != null) {
-			LocalDate localDate = LocalDateTime.ofInstant(entity.getBirthDate().toInstant(), ZoneOffset.UTC)
-					.toLocalDate();
-			dpBirthDate.setValue(localDate);
+			dpBirthDate.setValue(toLocalDate(entity.getBirthDate()));
 
 		}
 
 		Locale.setDefault(Locale.US);
-		txtSalary.setText(String.format("%.2f", entity.getBaseSalary()));
+		txtSalary.setText(formatSalary(entity.getBaseSalary()));
 		
 		if(entity.getDepartment() == null) {
 			comboBoxDepartment.getSelectionModel().selectFirst();
@@ -177,40 +222,33 @@ public class SellerFormController implements Initializable {
 	private Seller getFormData() {
 		Seller dp = new Seller();
 
-		ValidationException exception = new ValidationException("Erro de validao");
-
 		dp.setId(Utils.tryParseToInt(txtId.getText()));
-
-		if (txtName.getText() == null || txtName.getText().trim().equals("")) {
-			exception.addError("nome", "  O campo no pode ser vazio !!");
-		}
 		dp.setName(txtName.getText());
-		
-		if (txtEmail.getText() == null || txtEmail.getText().trim().equals("")) {
-			exception.addError("email", "  O campo no pode ser vazio !!");
-		}
 		dp.setEmail(txtEmail.getText());
 		
-		if(dpBirthDate.getValue() == null) {
-			exception.addError("aniversario", "  O campo no pode ser vazio !!");
+		//Data e salrio so comparados como aparecem no formulrio: sem mudana ali, fica o valor do banco e o vendedor no conta como alterado
+		LocalDate birthDate = dpBirthDate.getValue();
+		if(birthDate != null && entity.getBirthDate() != null && birthDate.equals(toLocalDate(entity.getBirthDate()))) {
+			dp.setBirthDate(entity.getBirthDate());
 		}
-		
-		else {
-
-			Instant instant = Instant.from(dpBirthDate.getValue().atStartOfDay(ZoneId.systemDefault()));
+		else if(birthDate != null) {
+			Instant instant = Instant.from(birthDate.atStartOfDay(ZoneId.systemDefault()));
 			dp.setBirthDate(Date.from(instant));
-			
 		}
-		if (txtSalary.getText() == null || txtSalary.getText().trim().equals("")) {
-			exception.addError("salario", "  O campo no pode ser vazio !!");
+		Double salary = Utils.tryParseToDouble(txtSalary.getText());
+		if(salary != null && entity.getBaseSalary() != null && formatSalary(salary).equals(formatSalary(entity.getBaseSalary()))) {
+			salary = entity.getBaseSalary();
 		}
-		dp.setBaseSalary(Utils.tryParseToDouble(txtSalary.getText()));
+		dp.setBaseSalary(salary);
 		
 		dp.setDepartment(comboBoxDepartment.getValue());
-		
-		if (exception.getErrors().size() > 0) {
-			throw exception;
+		//Compara com o vendedor carregado para saber o que mudou
+		if(entity.getId() != null) {
+			dp.trackChangesFrom(entity);
 		}
+		
+		//Mesmas regras usadas na importao de planilhas
+		SellerValidator.validate(dp);
 
 		return dp;
 	}
@@ -219,9 +257,20 @@ public class SellerFormController implements Initializable {
 		if (departmentService == null) {
 			throw new IllegalStateException("DepartmentService was null");
 		}
-		List<Department> list = departmentService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		comboBoxDepartment.setItems(obsList);
+		progressIndicator.setVisible(true);
+		departmentService.findAllAsync().whenCompleteAsync((list, ex) -> {
+			progressIndicator.setVisible(false);
+			if (ex != null) {
+				Alerts.showAlert("Erro !!", "Erro ao carregar os departamentos", Utils.unwrap(ex).getMessage(),
+						AlertType.ERROR);
+				return;
+			}
+			obsList = FXCollections.observableArrayList(list);
+			comboBoxDepartment.setItems(obsList);
+			if (entity != null && entity.getDepartment() == null) {
+				comboBoxDepartment.getSelectionModel().selectFirst();
+			}
+		}, Utils.fxExecutor());
 	}
 
 	private void initializeComboBoxDepartment() {
@@ -236,6 +285,15 @@ public class SellerFormController implements Initializable {
 		comboBoxDepartment.setButtonCell(factory.call(null));
 	}
 
+	//A data gravada  o incio do dia no fuso da mquina; lida no mesmo fuso, volta o mesmo dia
+	private static LocalDate toLocalDate(java.util.Date date) {
+		return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	private static String formatSalary(Double salary) {
+		return String.format(Locale.US, "%.2f", salary);
+	}
+
 	private void setErrorMessages(Map<String, String> erro) {
 		Set<String> fields = erro.keySet();
 
@@ -1,40 +1,82 @@
 package gui;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
+import java.util.concurrent.CompletableFuture;
+
 import application.Main;
-import db.DbIntegrityException;
+import application.Startup;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.PagedList;
+import gui.util.Resettable;
 import gui.util.Utils;
+import gui.util.ViewCache;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.entities.Seller;
+import model.importer.ImportProgress;
+import model.dao.ChangeSet;
+import model.dao.SellerCriteria;
+import model.importer.SellerCsvImporter;
+import model.services.ChangePoller;
 import model.services.DepartmentService;
+import model.services.SellerSearchIndex;
 import model.services.SellerService;
+import model.services.SellerWriteBehind;
 
-public class SellerListController implements Initializable, DataChangeListener {
+public class SellerListController implements Initializable, DataChangeListener<Seller>, Resettable {
+	
+	private static final int PAGE_SIZE = 100;
+	
+	private static final int MAX_PAGES_IN_MEMORY = 5;
+	
+	//Espera o usurio parar de digitar antes de consultar o banco
+	private static final Duration SEARCH_DELAY = Duration.millis(300);
+	
+	//Mesma ordem do banco (ORDER BY Name, Id), usada para posicionar linhas novas
+	private static final Comparator<Seller> ORDER = Comparator
+			.comparing(Seller::getName, Utils.nameOrder())
+			.thenComparing(Seller::getId);
 	
 	private SellerService service;
 
@@ -65,7 +107,68 @@ public class SellerListController implements Initializable, DataChangeListener {
 	@FXML 
 	private Button btNew;
 	
-	private ObservableList<Seller> obsList;
+	@FXML
+	private Button btRemoveSelected;
+	
+	@FXML
+	private ProgressIndicator progressIndicator;
+	
+	@FXML
+	private Button btImport;
+	
+	@FXML
+	private ProgressBar progressBarImport;
+	
+	@FXML
+	private Label lbImportStatus;
+	
+	@FXML
+	private TextField txtSearch;
+	
+	@FXML
+	private Label lbSearchStatus;
+	
+	private PagedList<Seller> obsList;
+	
+	private SellerCriteria criteria = new SellerCriteria();
+	
+	private PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+	
+	//Cada carga da tabela ganha um nmero; respostas de cargas antigas so descartadas
+	private int loadGeneration;
+	
+	private CompletableFuture<Integer> pendingCount;
+	
+	//ndice em memria de todos os vendedores; enquanto no fica pronto a busca vai ao banco
+	private SellerSearchIndex searchIndex;
+	
+	private boolean indexing;
+	
+	//Alteraes que chegam enquanto o ndice est sendo montado
+	private List<DataChangeEvent<Seller>> pendingIndexEvents = new ArrayList<>();
+	
+	private ObservableList<Seller> indexedSellers;
+	
+	//Nome e id de cada vendedor quando entrou em indexedSellers: a instncia do cache pode j estar com o nome novo
+	private Map<Integer, Seller> indexedKeys = new HashMap<>();
+	
+	//A ordem de indexedSellers, pela chave guardada de cada linha
+	private final Comparator<Seller> indexOrder = (a, b) -> ORDER.compare(indexedKeys.getOrDefault(a.getId(), a),
+			indexedKeys.getOrDefault(b.getId(), b));
+	
+	private FilteredList<Seller> filteredSellers;
+	
+	private boolean refilterScheduled;
+	
+	private ChangePoller<Seller> poller;
+	
+	private BooleanProperty busy = new SimpleBooleanProperty(false);
+	
+	//Erro da ltima gravao em segundo plano de cada vendedor, mostrado na linha
+	private Map<Integer, String> writeErrors = new HashMap<>();
+	
+	private SellerWriteBehind.Listener writeListener = (obj, state, error) ->
+			Utils.fxExecutor().execute(() -> onWriteStateChanged(obj, state, error));
 	
 	
 	@Override
@@ -80,6 +183,48 @@ public class SellerListController implements Initializable, DataChangeListener {
 		createDialogForm(obj, "/gui/FXMLSellerForm.fxml", parentStage);
 	}
 
+	@FXML
+	public void onBtImportAction(ActionEvent event) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Importar vendedores");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Planilha CSV", "*.csv"));
+		File file = chooser.showOpenDialog(Utils.currentStage(event));
+		if(file == null) {
+			return;
+		}
+		File rejectFile = new File(file.getParentFile(), file.getName().replaceFirst("(?i)\\.csv$", "") + "-rejeitados.csv");
+		
+		btImport.setDisable(true);
+		progressBarImport.setVisible(true);
+		progressBarImport.setProgress(0);
+		SellerCsvImporter importer = new SellerCsvImporter();
+		importer.importFileAsync(file, rejectFile, progress -> Utils.fxExecutor().execute(() -> showImportProgress(progress)))
+				.whenCompleteAsync((result, ex) -> {
+					btImport.setDisable(false);
+					progressBarImport.setVisible(false);
+					if(ex != null) {
+						lbImportStatus.setText("");
+						Alerts.showAlert("Erro !!", "Erro ao importar", Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+						return;
+					}
+					String msg = result.getImported() + " vendedores importados, " + result.getRejected() + " rejeitados"
+							+ String.format(" (%.0f linhas/s)", result.getRowsPerSecond());
+					if(result.getRejected() > 0) {
+						msg += "\nLinhas rejeitadas em " + rejectFile.getAbsolutePath();
+					}
+					if(importer.getCreatedDepartmentCount() > 0) {
+						msg += "\n" + importer.getCreatedDepartmentCount() + " departamentos criados";
+					}
+					Alerts.showAlert("Importao", "Importao concluda", msg, AlertType.INFORMATION);
+					updateTableView();
+				}, Utils.fxExecutor());
+	}
+	
+	private void showImportProgress(ImportProgress progress) {
+		progressBarImport.setProgress(progress.getFraction());
+		lbImportStatus.setText(String.format("%d linhas, %.0f linhas/s", progress.getRowsRead(), progress.getRowsPerSecond()));
+	}
+
 	private void initializaNodes() {
 		tableColumnId.setCellValueFactory(new PropertyValueFactory<>("id"));
 		tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
@@ -93,10 +238,272 @@ public class SellerListController implements Initializable, DataChangeListener {
 		Utils.formatTableColumnDouble(tableColumnBaseSalary, 2);
 		
 		
+		//A ordenao vem do banco (ORDER BY Name), a lista paginada no pode ser reordenada na tela
+		for(TableColumn<Seller, ?> column : tableViewSeller.getColumns()) {
+			column.setSortable(false);
+		}
+		
 		//fazer o tableView acompanhar a altura da janela
 		Stage stage = (Stage)Main.getMainScene().getWindow();
 		tableViewSeller.prefHeightProperty().bind(stage.heightProperty());
 		
+		progressIndicator.visibleProperty().bind(busy);
+		
+		tableViewSeller.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+		btRemoveSelected.disableProperty().bind(tableViewSeller.getSelectionModel().selectedItemProperty().isNull());
+		
+		searchDelay.setOnFinished(event -> applySearch());
+		//Com o ndice pronto filtra a cada tecla, sem esperar
+		txtSearch.textProperty().addListener((obs, oldValue, newValue) -> {
+			if(searchIndex != null) {
+				filterInMemory();
+			}
+			else {
+				searchDelay.playFromStart();
+			}
+		});
+		txtSearch.setOnAction(event -> {
+			if(searchIndex != null) {
+				filterInMemory();
+				return;
+			}
+			searchDelay.stop();
+			applySearch();
+		});
+		
+		initEditButtons();
+		initRemoveButton();
+		initRowFactory();
+		startWriteTracking();
+	}
+	
+	//Linha com gravao na fila fica em itlico; com erro, em vermelho e com o motivo no tooltip
+	private void initRowFactory() {
+		tableViewSeller.setRowFactory(param -> new TableRow<Seller>() {
+			@Override
+			protected void updateItem(Seller obj, boolean empty) {
+				super.updateItem(obj, empty);
+				
+				if(obj == null || empty) {
+					setStyle("");
+					setTooltip(null);
+					return;
+				}
+				
+				String error = writeErrors.get(obj.getId());
+				boolean queued = SellerWriteBehind.isEnabled() && SellerWriteBehind.getInstance().getState(obj.getId()) != null;
+				String style = queued ? "-fx-font-style: italic;" : "";
+				if(error != null) {
+					style += "-fx-background-color: #f4c7c3;";
+				}
+				setStyle(style);
+				setTooltip(error == null ? null : new Tooltip(error));
+			}
+		});
+	}
+	
+	private void startWriteTracking() {
+		if(!SellerWriteBehind.isEnabled()) {
+			return;
+		}
+		SellerWriteBehind.getInstance().addListener(writeListener);
+		tableViewSeller.sceneProperty().addListener((obs, oldScene, newScene) -> {
+			if(newScene == null) {
+				SellerWriteBehind.getInstance().removeListener(writeListener);
+			}
+			else {
+				SellerWriteBehind.getInstance().addListener(writeListener);
+			}
+		});
+	}
+	
+	private void onWriteStateChanged(Seller obj, SellerWriteBehind.State state, Throwable error) {
+		switch(state) {
+		case RETRYING:
+			writeErrors.put(obj.getId(), "Erro ao gravar, tentando de novo: " + error.getMessage());
+			break;
+		case FAILED:
+			writeErrors.put(obj.getId(), "Alterao desfeita: " + error.getMessage());
+			//A linha volta para o que estava antes da edio
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.UPDATED, obj));
+			break;
+		default:
+			writeErrors.remove(obj.getId());
+			break;
+		}
+		tableViewSeller.refresh();
+	}
+	
+	//Texto com @ busca pelo incio do e-mail, seno pelo incio do nome
+	private void applySearch() {
+		String text = searchText();
+		SellerCriteria next = new SellerCriteria();
+		if(text.contains("@")) {
+			next.setEmailPrefix(text);
+		}
+		else {
+			next.setNamePrefix(text);
+		}
+		if(sameFilter(next, criteria)) {
+			return;
+		}
+		criteria = next;
+		updateTableView();
+	}
+	
+	private String searchText() {
+		return txtSearch.getText() == null ? "" : txtSearch.getText().trim();
+	}
+	
+	private void filterInMemory() {
+		String text = searchText();
+		if(text.isEmpty()) {
+			tableViewSeller.setItems(obsList);
+			lbSearchStatus.setText("");
+			return;
+		}
+		long start = System.nanoTime();
+		BitSet ids = searchIndex.search(text);
+		filteredSellers.setPredicate(obj -> ids.get(obj.getId()));
+		double millis = (System.nanoTime() - start) / 1e6;
+		if(tableViewSeller.getItems() != filteredSellers) {
+			tableViewSeller.setItems(filteredSellers);
+		}
+		lbSearchStatus.setText(String.format("%d encontrados em %.2f ms", ids.cardinality(), millis));
+	}
+	
+	//Vrias alteraes seguidas geram uma s refiltragem
+	private void scheduleRefilter() {
+		if(refilterScheduled) {
+			return;
+		}
+		refilterScheduled = true;
+		Utils.fxExecutor().execute(() -> {
+			refilterScheduled = false;
+			if(tableViewSeller.getItems() == filteredSellers) {
+				filterInMemory();
+			}
+		});
+	}
+	
+	private void startIndexing() {
+		if(indexing || searchIndex != null) {
+			return;
+		}
+		indexing = true;
+		lbSearchStatus.setText("Montando ndice de busca...");
+		service.buildSearchIndexAsync().whenCompleteAsync((index, ex) -> {
+			indexing = false;
+			if(ex != null || index == null) {
+				pendingIndexEvents.clear();
+				lbSearchStatus.setText(ex != null ? "ndice de busca indisponvel, buscando no banco" : "Muitos vendedores, buscando no banco");
+				return;
+			}
+			List<Seller> all = index.getAll();
+			all.sort(ORDER);
+			for(Seller obj : all) {
+				indexedKeys.put(obj.getId(), sortKey(obj));
+			}
+			indexedSellers = FXCollections.observableArrayList(all);
+			filteredSellers = new FilteredList<>(indexedSellers);
+			searchIndex = index;
+			for(DataChangeEvent<Seller> event : pendingIndexEvents) {
+				applyToIndex(event);
+			}
+			pendingIndexEvents.clear();
+			
+			String memory = String.format("ndice de busca: %d vendedores, ~%d bytes por vendedor (%.1f MB)",
+					index.size(), index.estimateBytesPerSeller(), index.estimateBytes() / (1024.0 * 1024.0));
+			lbSearchStatus.setText(memory);
+			lbSearchStatus.setTooltip(new Tooltip(memory));
+			
+			//A busca que estava no banco passa para o ndice
+			if(!criteria.isUnfiltered()) {
+				criteria = new SellerCriteria();
+				updateTableView();
+			}
+			if(!searchText().isEmpty()) {
+				filterInMemory();
+			}
+		}, Utils.fxExecutor());
+	}
+	
+	private void applyToIndex(DataChangeEvent<Seller> event) {
+		if(searchIndex == null) {
+			if(indexing) {
+				pendingIndexEvents.add(event);
+			}
+			return;
+		}
+		Seller obj = event.getEntity();
+		//Acha a linha antiga pela chave guardada, sem percorrer a lista
+		Seller oldKey = indexedKeys.get(obj.getId());
+		int oldPos = oldKey == null ? -1 : Collections.binarySearch(indexedSellers, oldKey, indexOrder);
+		if(event.getType() == DataChangeEvent.Type.DELETED) {
+			searchIndex.remove(obj.getId());
+			if(oldPos >= 0) {
+				indexedSellers.remove(oldPos);
+			}
+			indexedKeys.remove(obj.getId());
+		}
+		else {
+			searchIndex.put(obj);
+			Seller key = sortKey(obj);
+			if(oldPos >= 0 && ORDER.compare(oldKey, key) == 0) {
+				indexedSellers.set(oldPos, obj);
+			}
+			else {
+				if(oldPos >= 0) {
+					indexedSellers.remove(oldPos);
+				}
+				indexedKeys.put(obj.getId(), key);
+				int pos = Collections.binarySearch(indexedSellers, obj, indexOrder);
+				indexedSellers.add(pos < 0 ? -pos - 1 : pos, obj);
+			}
+		}
+		scheduleRefilter();
+	}
+	
+	//S o que a ordenao usa, sem acompanhar as edies na instncia
+	private static Seller sortKey(Seller obj) {
+		return new Seller(obj.getId(), obj.getName(), null, null, null, null);
+	}
+	
+	private static boolean sameFilter(SellerCriteria a, SellerCriteria b) {
+		return Objects.equals(a.getNamePrefix(), b.getNamePrefix())
+				&& Objects.equals(a.getEmailPrefix(), b.getEmailPrefix());
+	}
+	
+	@FXML
+	public void onBtRemoveSelectedAction(ActionEvent event) {
+		List<Seller> selected = new ArrayList<>();
+		for(Seller obj : tableViewSeller.getSelectionModel().getSelectedItems()) {
+			if(obj != null) {
+				selected.add(obj);
+			}
+		}
+		if(selected.isEmpty()) {
+			return;
+		}
+		Optional<ButtonType> result = Alerts.showConfirmation("Confimao", "Tem certeza que voc quer deletar " + selected.size() + " vendedores?");
+		
+		if(result.get() == ButtonType.OK) {
+			if(service == null) {
+				throw new IllegalStateException("Service was null");
+			}
+			busy.set(true);
+			service.removeAllAsync(selected).whenCompleteAsync((v, ex) -> {
+				busy.set(false);
+				if(ex != null) {
+					Alerts.showAlert("Erro ao remover", null, Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+					return;
+				}
+				tableViewSeller.getSelectionModel().clearSelection();
+				for(Seller obj : selected) {
+					onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+				}
+			}, Utils.fxExecutor());
+		}
 	}
 	
 	public void setSellerService(SellerService service) {
@@ -107,36 +514,114 @@ public class SellerListController implements Initializable, DataChangeListener {
 		if(service == null) {
 			throw new IllegalStateException("O servio est nulo");
 		}
-		List<Seller> list = service.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewSeller.setItems(obsList);
-		initEditButtons();
-		initRemoveButton();
+		startSync();
+		startIndexing();
+		//Uma busca nova torna a anterior obsoleta: se ainda estiver na fila ela nem chega a rodar, se estiver rodando a consulta  cancelada no banco
+		if(pendingCount != null) {
+			pendingCount.cancel(false);
+		}
+		int generation = ++loadGeneration;
+		SellerCriteria current = criteria;
+		busy.set(true);
+		pendingCount = service.countAsync(current);
+		pendingCount.whenCompleteAsync((count, ex) -> {
+			if(generation != loadGeneration) {
+				return;
+			}
+			busy.set(false);
+			pendingCount = null;
+			if(ex != null) {
+				showLoadError(ex);
+				return;
+			}
+			//Carrega as pginas sob demanda conforme o usurio rola a tabela
+			PagedList<Seller> list = new PagedList<>(count, PAGE_SIZE, MAX_PAGES_IN_MEMORY, Seller::getId,
+					SellerListController::sortKey, ORDER,
+					(after, limit) -> service.searchPageAsync(current, after, limit),
+					(offset, limit) -> service.searchPageAtAsync(current, offset, limit));
+			list.setOnLoadError(this::showLoadError);
+			progressIndicator.visibleProperty().bind(busy.or(list.loadingProperty()));
+			obsList = list;
+			Startup.firstData("vendedores");
+			//Filtrando pelo ndice, a tabela continua mostrando o resultado do filtro
+			if(filteredSellers == null || tableViewSeller.getItems() != filteredSellers) {
+				tableViewSeller.setItems(obsList);
+			}
+		}, Utils.fxExecutor());
+	}
+	
+	//Traz as alteraes de outros clientes enquanto a tela estiver aberta
+	private void startSync() {
+		if(poller != null) {
+			return;
+		}
+		poller = new ChangePoller<>(service::findChangedSince, changes -> Utils.fxExecutor().execute(() -> applyChanges(changes)));
+		poller.start();
+		tableViewSeller.sceneProperty().addListener((obs, oldScene, newScene) -> {
+			if(newScene == null) {
+				poller.stop();
+			}
+			else {
+				poller.start();
+			}
+		});
+	}
+	
+	private void applyChanges(ChangeSet<Seller> changes) {
+		if(obsList == null) {
+			return;
+		}
+		for(Seller obj : changes.getDeleted()) {
+			//Removido fora da janela carregada e sem nome: no d para saber a posio
+			if(obj.getName() == null && obsList.indexOf(obj) < 0) {
+				reloadAfter(changes);
+				return;
+			}
+		}
+		for(Seller obj : changes.getDeleted()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+		}
+		for(Seller obj : changes.getUpdated()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.UPDATED, obj));
+		}
+		for(Seller obj : changes.getInserted()) {
+			onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.INSERTED, obj));
+		}
 	}
 	
+	//A tabela  recarregada, mas o ndice em memria recebe as alteraes uma a uma
+	private void reloadAfter(ChangeSet<Seller> changes) {
+		for(Seller obj : changes.getDeleted()) {
+			applyToIndex(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+		}
+		for(Seller obj : changes.getUpdated()) {
+			applyToIndex(new DataChangeEvent<>(DataChangeEvent.Type.UPDATED, obj));
+		}
+		for(Seller obj : changes.getInserted()) {
+			applyToIndex(new DataChangeEvent<>(DataChangeEvent.Type.INSERTED, obj));
+		}
+		updateTableView();
+	}
+	
+	private void showLoadError(Throwable ex) {
+		String msg = Utils.unwrap(ex).getMessage();
+		tableViewSeller.setPlaceholder(new Label("Erro ao carregar os vendedores: " + msg));
+		Alerts.showAlert("Erro !!", "Erro ao carregar os vendedores", msg, AlertType.ERROR);
+	}
+	
+	//O formulrio vem do pool do ViewCache: s  lido do FXML quando no h um livre
 	private void createDialogForm(Seller obj, String absoluteName, Stage parentStage) {
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			Pane pane = loader.load();
-			
-			SellerFormController controller = loader.getController();
-			controller.setSeller(obj);
-			controller.setServices(new SellerService(), new DepartmentService());
-			
-			//Carregar os departamentos no comboBox
-			controller.loadAssociatedObjects();
-			
-			controller.subscribeDataChangeListener(this);
-			controller.updateFormData();
-			
-			Stage dialogStage = new Stage();
-			dialogStage.setTitle("Registrar vendedor:");
-			dialogStage.setScene(new Scene(pane));
-			dialogStage.setResizable(false);//Diz se a janela pode ou no ser redimencionada
-			dialogStage.initOwner(parentStage);
-			dialogStage.initModality(Modality.WINDOW_MODAL);//Trava a tela, enquanto voc no fechar ela vc no usa outra
-			dialogStage.showAndWait();
-			
+			ViewCache.<SellerFormController>showDialog(absoluteName, "Registrar vendedor:", parentStage, controller -> {
+				controller.setSeller(obj);
+				controller.setServices(SellerService.getInstance(), DepartmentService.getInstance());
+				
+				//Carregar os departamentos no comboBox
+				controller.loadAssociatedObjects();
+				
+				controller.subscribeDataChangeListener(this);
+				controller.updateFormData();
+			});
 		}
 		catch(IOException e) {
 			e.printStackTrace();
@@ -144,10 +629,46 @@ public class SellerListController implements Initializable, DataChangeListener {
 		}
 	}
 
+	//A tela volta do cache sem busca nem seleo; a tabela  recarregada logo depois pelo MainController
 	@Override
-	public void onDataChanged() {
-		updateTableView();
-		
+	public void resetState() {
+		txtSearch.clear();
+		searchDelay.stop();
+		criteria = new SellerCriteria();
+		tableViewSeller.getSelectionModel().clearSelection();
+		tableViewSeller.scrollTo(0);
+	}
+
+	//Atualiza so a linha afetada, sem recarregar a tabela
+	@Override
+	public void onDataChanged(DataChangeEvent<Seller> event) {
+		applyToIndex(event);
+		if(obsList == null) {
+			updateTableView();
+			return;
+		}
+		Seller obj = event.getEntity();
+		switch(event.getType()) {
+		case INSERTED:
+			//Fora do filtro da busca: no aparece na tabela
+			if(criteria.matches(obj)) {
+				obsList.insertRow(obj);
+			}
+			break;
+		case UPDATED:
+			if(criteria.matches(obj)) {
+				obsList.updateRow(obj);
+			}
+			else if(obsList.contains(obj)) {
+				obsList.removeRow(obj);
+			}
+			break;
+		case DELETED:
+			if(criteria.matches(obj) || obsList.contains(obj)) {
+				obsList.removeRow(obj);
+			}
+			break;
+		}
 	}
 	
 	//Boto de editar ////////////////////////
@@ -166,13 +687,27 @@ public class SellerListController implements Initializable, DataChangeListener {
 				}
 				
 				setGraphic(button);
-				button.setOnAction(
-						event -> createDialogForm(
-								obj, "/gui/FXMLSellerForm.fxml",Utils.currentStage(event)));
+				button.setOnAction(event -> editEntity(obj, Utils.currentStage(event)));
 			}
 		});
 	}
 	
+	//Vendedores vistos recentemente vm do cache do servio, sem ida ao banco
+	private void editEntity(Seller obj, Stage parentStage) {
+		service.findByIdAsync(obj.getId()).whenCompleteAsync((current, ex) -> {
+			if(ex != null) {
+				Alerts.showAlert("Erro !!", "Erro ao carregar o vendedor", Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+				return;
+			}
+			if(current == null) {
+				Alerts.showAlert("Vendedor removido", null, "O vendedor no existe mais", AlertType.WARNING);
+				onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+				return;
+			}
+			createDialogForm(current, "/gui/FXMLSellerForm.fxml", parentStage);
+		}, Utils.fxExecutor());
+	}
+	
 	
 	private void initRemoveButton() {
 		tableColumnRemove.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
@@ -203,13 +738,15 @@ public class SellerListController implements Initializable, DataChangeListener {
 			if(service == null) {
 				throw new IllegalStateException("Service was null");
 			}
-			try {
-				service.remove(obj);
-				updateTableView();
-			}
-			catch(DbIntegrityException e) {
-				Alerts.showAlert("Erro ao remover", null, e.getMessage(), AlertType.ERROR);
-			}
+			busy.set(true);
+			service.removeAsync(obj).whenCompleteAsync((v, ex) -> {
+				busy.set(false);
+				if(ex != null) {
+					Alerts.showAlert("Erro ao remover", null, Utils.unwrap(ex).getMessage(), AlertType.ERROR);
+					return;
+				}
+				onDataChanged(new DataChangeEvent<>(DataChangeEvent.Type.DELETED, obj));
+			}, Utils.fxExecutor());
 		}
 		
 		
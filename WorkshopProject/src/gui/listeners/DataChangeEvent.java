@@ -0,0 +1,33 @@
+package gui.listeners;
+
+/**
+ * Carries the entity touched by a form or list action, so listeners can patch
+ * their rows instead of reloading everything.
+ */
+public class DataChangeEvent<T> {
+
+	public enum Type {
+		INSERTED, UPDATED, DELETED
+	}
+
+	private final Type type;
+	private final T entity;
+
+	public DataChangeEvent(Type type, T entity) {
+		this.type = type;
+		this.entity = entity;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	@Override
+	public String toString() {
+		return "DataChangeEvent [type=" + type + ", entity=" + entity + "]";
+	}
+}
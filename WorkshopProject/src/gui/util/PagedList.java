@@ -0,0 +1,509 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only list that keeps only a window of pages in memory. Pages are
+ * fetched in the background when the TableView asks for a row, and pages far
+ * from the last requested one are dropped. A page next to one whose last row
+ * is known is fetched with keyset pagination (that row is the cursor); any
+ * other page, e.g. after dragging the scrollbar, is fetched by its position,
+ * together with the row before it, which becomes the cursor of the previous
+ * page. The known cursors may so form separate runs.
+ * <p>
+ * A page holds the rows after the cursor of the previous page up to its own
+ * cursor. Single rows patched with {@link #updateRow}, {@link #insertRow} and
+ * {@link #removeRow} only change the length of the page they fall in: every
+ * cursor is kept and only the loaded rows after the change move. A page that
+ * comes back from the database with more or fewer rows than expected, from
+ * changes this list was not told about, is resized when it arrives.
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+
+	private int size;
+	private final int pageSize;
+	private final int maxPages;
+	private final Function<? super T, ?> keyOf;
+	private final Function<? super T, ? extends T> cursorOf;
+	private final Comparator<? super T> order;
+	private final BiFunction<T, Integer, CompletableFuture<List<T>>> pageLoader;
+	private final BiFunction<Integer, Integer, CompletableFuture<List<T>>> seekLoader;
+
+	private final Map<Integer, List<T>> pages = new HashMap<>();
+	//ltima linha de cada pgina j vista (cpia): cursor da prxima e limite da prpria pgina
+	private final TreeMap<Integer, T> lastOfPage = new TreeMap<>();
+	//Pginas que ganharam ou perderam linhas: tamanho - pageSize
+	private final TreeMap<Integer, Integer> lengthDelta = new TreeMap<>();
+	private final Set<Integer> pagesLoading = new HashSet<>();
+	//Posio de cada linha carregada, pela chave
+	private final Map<Object, Integer> positions = new HashMap<>();
+	private int wantedPage = -1;
+	//Muda a cada alterao; pginas pedidas antes dela chegam desatualizadas
+	private int generation;
+
+	private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(false);
+	private Consumer<Throwable> onLoadError;
+
+	//cursorOf copia a linha com os campos da ordenao: as linhas podem mudar depois, o limite da pgina no.
+	//pageLoader traz as linhas depois de um cursor (null: do incio); seekLoader, as linhas a partir de uma posio
+	public PagedList(int size, int pageSize, int maxPages, Function<? super T, ?> keyOf,
+			Function<? super T, ? extends T> cursorOf, Comparator<? super T> order,
+			BiFunction<T, Integer, CompletableFuture<List<T>>> pageLoader,
+			BiFunction<Integer, Integer, CompletableFuture<List<T>>> seekLoader) {
+		this.size = size;
+		this.pageSize = pageSize;
+		this.maxPages = Math.max(2, maxPages);
+		this.keyOf = keyOf;
+		this.cursorOf = cursorOf;
+		this.order = order;
+		this.pageLoader = pageLoader;
+		this.seekLoader = seekLoader;
+	}
+
+	//Linhas de pginas ainda no carregadas retornam null at a pgina chegar
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int pageIndex = pageAt(index);
+		List<T> page = pages.get(pageIndex);
+		if (page == null) {
+			wantedPage = pageIndex;
+			loadTowards(pageIndex);
+			return null;
+		}
+		int offset = index - start(pageIndex);
+		return offset < page.size() ? page.get(offset) : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int indexOf(Object o) {
+		if (o == null) {
+			return -1;
+		}
+		Integer pos = positions.get(keyOf.apply((T) o));
+		return pos == null ? -1 : pos;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	public int getLoadedPageCount() {
+		return pages.size();
+	}
+
+	public ReadOnlyBooleanProperty loadingProperty() {
+		return loading.getReadOnlyProperty();
+	}
+
+	public void setOnLoadError(Consumer<Throwable> onLoadError) {
+		this.onLoadError = onLoadError;
+	}
+
+	//Troca a linha no lugar; se a ordem mudou, a linha sai e entra de novo na posio certa
+	public void updateRow(T item) {
+		Integer pos = positions.get(keyOf.apply(item));
+		if (pos == null) {
+			return;
+		}
+		int pageIndex = pageAt(pos);
+		List<T> page = pages.get(pageIndex);
+		int offset = pos - start(pageIndex);
+		T before = offset > 0 ? page.get(offset - 1) : lastOfPage.get(pageIndex - 1);
+		T after = offset < page.size() - 1 ? page.get(offset + 1) : lastOfPage.get(pageIndex);
+		//Sem o cursor da pgina anterior no d para saber se a primeira linha continua nesta pgina
+		boolean inOrder = (before == null ? pageIndex == 0 : order.compare(before, item) < 0)
+				&& (after == null || order.compare(item, after) <= 0);
+		if (inOrder) {
+			T old = page.set(offset, item);
+			beginChange();
+			nextSet(pos, old);
+			endChange();
+			return;
+		}
+		removeRow(item);
+		insertRow(item);
+	}
+
+	public void insertRow(T item) {
+		int pageIndex = pageFor(item);
+		int pos;
+		List<T> page = null;
+		int offset = 0;
+		if (!placed(pageIndex)) {
+			//Entre duas sequncias de cursores: a posio exata no  conhecida, as pginas a partir do intervalo so buscadas de novo
+			int gap = gapStart(pageIndex);
+			pos = Math.min(start(gap), size);
+			dropFrom(gap);
+		}
+		else if (lastOfPage.containsKey(pageIndex)) {
+			//Dentro do limite de uma pgina conhecida: s ela cresce
+			page = pages.get(pageIndex);
+			pos = start(pageIndex);
+			if (page != null) {
+				offset = offsetFor(page, item);
+				pos += offset;
+			}
+			addLength(pageIndex, 1);
+		}
+		else {
+			//Depois do ltimo cursor conhecido: entra no fim da ltima pgina, se ela estiver carregada e couber
+			List<T> tail = pages.get(pageIndex - 1);
+			if (tail != null && start(pageIndex - 1) + tail.size() == size && tail.size() < pageSize) {
+				page = tail;
+				offset = tail.size();
+				pos = size;
+				lastOfPage.put(pageIndex - 1, cursorOf.apply(item));
+				addLength(pageIndex - 1, 1);
+			}
+			else {
+				pos = Math.min(start(pageIndex), size);
+				forgetFrom(pageIndex);
+			}
+		}
+		shift(pos, 1);
+		if (page != null) {
+			page.add(offset, item);
+			positions.put(keyOf.apply(item), pos);
+		}
+		size++;
+		discardLoads();
+		beginChange();
+		nextAdd(pos, pos + 1);
+		endChange();
+	}
+
+	public void removeRow(T item) {
+		if (size == 0) {
+			return;
+		}
+		Integer pos = positions.remove(keyOf.apply(item));
+		int pageIndex;
+		int index;
+		if (pos != null) {
+			pageIndex = pageAt(pos);
+			pages.get(pageIndex).remove(pos - start(pageIndex));
+			index = pos;
+		}
+		else {
+			pageIndex = pageFor(item);
+			if (!placed(pageIndex)) {
+				//Entre duas sequncias de cursores, como em insertRow
+				pageIndex = gapStart(pageIndex);
+				dropFrom(pageIndex);
+			}
+			else if (pages.containsKey(pageIndex)) {
+				//A pgina onde estaria est carregada e no tem a linha: ela no faz parte da lista
+				return;
+			}
+			index = Math.min(start(pageIndex), size - 1);
+		}
+		//O cursor continua valendo como limite mesmo que a linha dele tenha sado
+		if (lastOfPage.containsKey(pageIndex)) {
+			addLength(pageIndex, -1);
+		}
+		shift(index + 1, -1);
+		size--;
+		discardLoads();
+		beginChange();
+		nextRemove(index, item);
+		endChange();
+	}
+
+	//Primeira pgina cujo cursor no  menor que o item; sem nenhum, a pgina depois do ltimo cursor
+	private int pageFor(T item) {
+		for (Map.Entry<Integer, T> entry : lastOfPage.entrySet()) {
+			if (order.compare(item, entry.getValue()) <= 0) {
+				return entry.getKey();
+			}
+		}
+		return lastOfPage.isEmpty() ? 0 : lastOfPage.lastKey() + 1;
+	}
+
+	//O cursor da pgina anterior tambm  conhecido: uma linha que cai aqui no pode estar em outra pgina
+	private boolean placed(int pageIndex) {
+		return pageIndex == 0 || lastOfPage.containsKey(pageIndex - 1);
+	}
+
+	//Primeira pgina sem cursor antes de pageIndex
+	private int gapStart(int pageIndex) {
+		Integer known = lastOfPage.lowerKey(pageIndex);
+		return known == null ? 0 : known + 1;
+	}
+
+	private int offsetFor(List<T> page, T item) {
+		int offset = 0;
+		while (offset < page.size() && order.compare(page.get(offset), item) <= 0) {
+			offset++;
+		}
+		return offset;
+	}
+
+	private int length(int pageIndex) {
+		return pageSize + lengthDelta.getOrDefault(pageIndex, 0);
+	}
+
+	private void addLength(int pageIndex, int diff) {
+		int delta = lengthDelta.getOrDefault(pageIndex, 0) + diff;
+		if (delta == 0) {
+			lengthDelta.remove(pageIndex);
+		}
+		else {
+			lengthDelta.put(pageIndex, delta);
+		}
+	}
+
+	private int start(int pageIndex) {
+		int start = pageIndex * pageSize;
+		for (int delta : lengthDelta.headMap(pageIndex).values()) {
+			start += delta;
+		}
+		return start;
+	}
+
+	//Pgina que contm a posio, descontando as pginas que mudaram de tamanho antes dela
+	private int pageAt(int index) {
+		int shift = 0;
+		for (Map.Entry<Integer, Integer> entry : lengthDelta.entrySet()) {
+			int start = entry.getKey() * pageSize + shift;
+			if (index < start) {
+				break;
+			}
+			if (index < start + pageSize + entry.getValue()) {
+				return entry.getKey();
+			}
+			shift += entry.getValue();
+		}
+		return (index - shift) / pageSize;
+	}
+
+	//As linhas carregadas a partir de "from" andam "diff" posies
+	private void shift(int from, int diff) {
+		positions.replaceAll((key, pos) -> pos >= from ? pos + diff : pos);
+	}
+
+	//Cargas em andamento foram pedidas com as posies antigas: a tabela pede de novo
+	private void discardLoads() {
+		generation++;
+		pagesLoading.clear();
+		loading.set(false);
+	}
+
+	//Pginas a partir de pageIndex s estavam vazias (fim da lista); voltam do banco quando a tabela pedir
+	private void forgetFrom(int pageIndex) {
+		Iterator<Map.Entry<Integer, List<T>>> it = pages.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer, List<T>> entry = it.next();
+			if (entry.getKey() >= pageIndex) {
+				unindex(entry.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	//Descarta as pginas e os cursores a partir de pageIndex
+	private void dropFrom(int pageIndex) {
+		discardLoads();
+		forgetFrom(pageIndex);
+		lastOfPage.tailMap(pageIndex).clear();
+		lengthDelta.tailMap(pageIndex).clear();
+	}
+
+	private void unindex(List<T> page) {
+		for (T row : page) {
+			positions.remove(keyOf.apply(row));
+		}
+	}
+
+	//Pelo cursor s a pgina vizinha de uma conhecida; mais longe, um salto direto pela posio
+	private void loadTowards(int pageIndex) {
+		if (placed(pageIndex)) {
+			load(pageIndex);
+		}
+		else if (!pagesLoading.contains(pageIndex - 1)) {
+			seek(pageIndex);
+		}
+	}
+
+	//A tabela pediu outra pgina enquanto esta carregava
+	private void loadWanted() {
+		if (wantedPage >= 0 && start(wantedPage) < size && !pages.containsKey(wantedPage)) {
+			loadTowards(wantedPage);
+		}
+	}
+
+	private void load(int pageIndex) {
+		if (pages.containsKey(pageIndex) || pagesLoading.contains(pageIndex)) {
+			return;
+		}
+		T after = pageIndex == 0 ? null : lastOfPage.get(pageIndex - 1);
+		//Com o limite conhecido, uma linha a mais mostra se o intervalo tem mais linhas do que o esperado
+		boolean bounded = lastOfPage.containsKey(pageIndex);
+		int limit = bounded ? length(pageIndex) + 1 : pageSize;
+		fetch(pageIndex, pageLoader.apply(after, limit), rows -> store(pageIndex, rows, bounded, limit));
+	}
+
+	//Traz tambm a linha antes da pgina, que passa a ser o cursor da pgina anterior
+	private void seek(int pageIndex) {
+		if (pages.containsKey(pageIndex) || pagesLoading.contains(pageIndex)) {
+			return;
+		}
+		boolean bounded = lastOfPage.containsKey(pageIndex);
+		int limit = bounded ? length(pageIndex) + 1 : pageSize;
+		int from = start(pageIndex) - 1;
+		fetch(pageIndex, seekLoader.apply(from, limit + 1), rows -> {
+			if (rows.isEmpty()) {
+				//O banco tem menos linhas do que a lista: ela termina antes da pgina
+				truncate(from);
+				return;
+			}
+			lastOfPage.put(pageIndex - 1, cursorOf.apply(rows.get(0)));
+			store(pageIndex, rows.subList(1, rows.size()), bounded, limit);
+		});
+	}
+
+	private void fetch(int pageIndex, CompletableFuture<List<T>> request, Consumer<List<T>> onRows) {
+		pagesLoading.add(pageIndex);
+		loading.set(true);
+		int requestedIn = generation;
+		request.whenCompleteAsync((rows, ex) -> {
+			if (requestedIn != generation) {
+				return;
+			}
+			pagesLoading.remove(pageIndex);
+			loading.set(!pagesLoading.isEmpty());
+			if (ex != null) {
+				if (onLoadError != null) {
+					onLoadError.accept(ex);
+				}
+				return;
+			}
+			onRows.accept(rows);
+			loadWanted();
+		}, Utils.fxExecutor());
+	}
+
+	private void store(int pageIndex, List<T> rows, boolean bounded, int limit) {
+		List<T> page = new ArrayList<>(rows);
+		if (bounded) {
+			int kept = 0;
+			while (kept < page.size() && order.compare(page.get(kept), lastOfPage.get(pageIndex)) <= 0) {
+				kept++;
+			}
+			boolean endOfData = kept == page.size() && page.size() < limit;
+			boolean complete = kept < page.size() || endOfData;
+			page.subList(kept, page.size()).clear();
+			if (!complete) {
+				//O intervalo tem mais linhas do que cabem na carga: a pgina termina na ltima recebida
+				//e as seguintes so descobertas de novo
+				lastOfPage.put(pageIndex, cursorOf.apply(page.get(page.size() - 1)));
+				dropFrom(pageIndex + 1);
+			}
+			resize(pageIndex, page.size(), endOfData);
+		}
+		else {
+			if (!page.isEmpty()) {
+				lastOfPage.put(pageIndex, cursorOf.apply(page.get(page.size() - 1)));
+			}
+			resize(pageIndex, page.size(), page.size() < limit);
+		}
+		pages.put(pageIndex, page);
+		int from = start(pageIndex);
+		for (int i = 0; i < page.size(); i++) {
+			positions.put(keyOf.apply(page.get(i)), from + i);
+		}
+		evictFarFrom(wantedPage >= 0 ? wantedPage : pageIndex);
+
+		if (pages.containsKey(pageIndex)) {
+			int to = Math.min(size, from + Math.max(page.size(), length(pageIndex)));
+			beginChange();
+			for (int i = from; i < to; i++) {
+				nextSet(i, null);
+			}
+			endChange();
+		}
+	}
+
+	//A pgina passa a ter exatamente as linhas recebidas; na ltima pgina da lista o tamanho da lista acompanha
+	private void resize(int pageIndex, int actual, boolean endOfData) {
+		int from = start(pageIndex);
+		int expected = length(pageIndex);
+		//Sem cursor (pgina vazia no fim) a pgina continua com o tamanho nominal
+		if (lastOfPage.containsKey(pageIndex)) {
+			addLength(pageIndex, actual - expected);
+		}
+		int diff = endOfData ? from + actual - size : actual - expected;
+		if (diff == 0) {
+			return;
+		}
+		int at = endOfData ? size : from + expected;
+		if (!endOfData) {
+			shift(at, diff);
+		}
+		size += diff;
+		beginChange();
+		if (diff > 0) {
+			nextAdd(at, at + diff);
+		}
+		else {
+			nextRemove(at + diff, Collections.<T>nCopies(-diff, null));
+		}
+		endChange();
+	}
+
+	//A lista passa a terminar em newSize; as pginas depois dele so esquecidas
+	private void truncate(int newSize) {
+		if (newSize >= size) {
+			return;
+		}
+		dropFrom(pageAt(newSize) + 1);
+		int removed = size - newSize;
+		size = newSize;
+		beginChange();
+		nextRemove(newSize, Collections.<T>nCopies(removed, null));
+		endChange();
+	}
+
+	private void evictFarFrom(int pageIndex) {
+		while (pages.size() > maxPages) {
+			int farthest = pageIndex;
+			for (int p : pages.keySet()) {
+				if (Math.abs(p - pageIndex) > Math.abs(farthest - pageIndex)) {
+					farthest = p;
+				}
+			}
+			unindex(pages.remove(farthest));
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package gui.util;
+
+//Controller de uma view reaproveitada pelo ViewCache: volta ao estado de recm-carregada
+public interface Resettable {
+	
+	void resetState();
+}
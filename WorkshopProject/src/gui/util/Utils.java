@@ -1,11 +1,17 @@
 package gui.util;
 
+import java.text.Collator;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.scene.Node;
 import javafx.scene.control.DatePicker;
@@ -15,10 +21,36 @@ import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
 public class Utils {
+	
+	private static final Executor FX_EXECUTOR = Platform::runLater;
+	
+	//Compara nomes como a collation padro do MySQL (utf8mb4_0900_ai_ci): sem diferenciar maisculas nem acentos
+	private static final Collator NAME_COLLATOR = Collator.getInstance(new Locale("pt", "BR"));
+	
+	static {
+		NAME_COLLATOR.setStrength(Collator.PRIMARY);
+	}
+	
 	public static Stage currentStage(ActionEvent event) {
 		return (Stage) ((Node) event.getSource()).getScene().getWindow();
 	}
 
+	public static Executor fxExecutor() {
+		return FX_EXECUTOR;
+	}
+
+	//A mesma ordem do ORDER BY Name do banco, para posicionar linhas sem recarregar
+	public static Comparator<String> nameOrder() {
+		return NAME_COLLATOR::compare;
+	}
+
+	public static Throwable unwrap(Throwable ex) {
+		while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+			ex = ex.getCause();
+		}
+		return ex;
+	}
+
 	public static Integer tryParseToInt(String str) {
 		try {
 			return Integer.parseInt(str);
@@ -45,7 +77,7 @@ public class Utils {
 				@Override
 				protected void updateItem(Date item, boolean empty) {
 					super.updateItem(item, empty);
-					if (empty) {
+					if (empty || item == null) {
 						setText(null);
 					} else {
 						setText(sdf.format(item));
@@ -62,7 +94,7 @@ public class Utils {
 				@Override
 				protected void updateItem(Double item, boolean empty) {
 					super.updateItem(item, empty);
-					if (empty) {
+					if (empty || item == null) {
 						setText(null);
 					} else {
 						Locale.setDefault(Locale.US);
@@ -0,0 +1,192 @@
+package gui.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Parses each FXML file once and keeps the node graph with its controller.
+ * A screen shown in the main window has one instance, handed out again on
+ * every navigation. Dialogs are pooled with their Stage and Scene: a dialog
+ * goes back to the pool when it closes, and a new one is only parsed when
+ * every pooled dialog is open. Controllers implementing {@link Resettable}
+ * are reset before reuse. Used on the JavaFX thread only.
+ */
+public class ViewCache {
+
+	private static final Logger LOG = Logger.getLogger(ViewCache.class.getName());
+
+	private static final Map<String, View<?>> views = new HashMap<>();
+
+	private static final Map<String, Deque<View<?>>> dialogs = new HashMap<>();
+
+	private static final Deque<Runnable> preloads = new ArrayDeque<>();
+
+	//A view do cache, carregada na primeira vez
+	@SuppressWarnings("unchecked")
+	public static <C> View<C> getView(String absoluteName) throws IOException {
+		View<C> view = (View<C>) views.get(absoluteName);
+		if(view == null) {
+			view = load(absoluteName);
+			views.put(absoluteName, view);
+		}
+		else {
+			view.reset();
+		}
+		return view;
+	}
+
+	//Mostra um dilogo do pool e espera ele fechar; initializingAction recebe o controller antes de abrir
+	@SuppressWarnings("unchecked")
+	public static <C> void showDialog(String absoluteName, String title, Window owner, Consumer<C> initializingAction) throws IOException {
+		Deque<View<?>> pool = pool(absoluteName);
+		View<C> view = (View<C>) pool.pollFirst();
+		if(view == null) {
+			view = load(absoluteName);
+		}
+		Stage stage = view.dialogStage(owner);
+		stage.setTitle(title);
+		try {
+			initializingAction.accept(view.getController());
+			stage.showAndWait();
+		}
+		finally {
+			//Limpo ao voltar para o pool, sem guardar listeners nem a entidade da ltima vez
+			view.reset();
+			pool.addFirst(view);
+		}
+	}
+
+	//Os arquivos so lidos um por vez na thread do JavaFX, entre um evento e outro, para a janela continuar respondendo
+	public static void preloadViews(String... absoluteNames) {
+		for(String name : absoluteNames) {
+			schedulePreload(() -> {
+				if(!views.containsKey(name)) {
+					views.put(name, load(name));
+				}
+			}, name);
+		}
+	}
+
+	//Deixa um dilogo pronto no pool, j com a janela criada para "owner"
+	public static void preloadDialogs(Window owner, String... absoluteNames) {
+		for(String name : absoluteNames) {
+			schedulePreload(() -> {
+				Deque<View<?>> pool = pool(name);
+				if(pool.isEmpty()) {
+					View<?> view = load(name);
+					view.dialogStage(owner);
+					pool.add(view);
+				}
+			}, name);
+		}
+	}
+
+	private static void schedulePreload(Preload preload, String name) {
+		preloads.add(() -> {
+			try {
+				preload.run();
+			}
+			catch(IOException e) {
+				LOG.log(Level.WARNING, "Could not preload " + name + ": " + e.getMessage(), e);
+			}
+		});
+		if(preloads.size() == 1) {
+			Platform.runLater(ViewCache::runNextPreload);
+		}
+	}
+
+	private static void runNextPreload() {
+		Runnable next = preloads.peekFirst();
+		if(next == null) {
+			return;
+		}
+		next.run();
+		preloads.pollFirst();
+		if(!preloads.isEmpty()) {
+			Platform.runLater(ViewCache::runNextPreload);
+		}
+	}
+
+	private static Deque<View<?>> pool(String absoluteName) {
+		return dialogs.computeIfAbsent(absoluteName, k -> new ArrayDeque<>());
+	}
+
+	private static <C> View<C> load(String absoluteName) throws IOException {
+		long start = System.nanoTime();
+		FXMLLoader loader = new FXMLLoader(ViewCache.class.getResource(absoluteName));
+		Parent root = loader.load();
+		LOG.fine(String.format("Parsed %s in %.1f ms", absoluteName, (System.nanoTime() - start) / 1e6));
+		return new View<>(root, loader.getController());
+	}
+
+	private interface Preload {
+		void run() throws IOException;
+	}
+
+	public static class View<C> {
+
+		private final Parent root;
+		//Os filhos da raiz: a tela principal os move para dentro dela
+		private final List<Node> content;
+		private final C controller;
+		private Stage stage;
+
+		private View(Parent root, C controller) {
+			this.root = root;
+			this.content = new ArrayList<>(root.getChildrenUnmodifiable());
+			this.controller = controller;
+		}
+
+		public Parent getRoot() {
+			return root;
+		}
+
+		public List<Node> getContent() {
+			return content;
+		}
+
+		public C getController() {
+			return controller;
+		}
+
+		private void reset() {
+			if(controller instanceof Resettable) {
+				((Resettable) controller).resetState();
+			}
+		}
+
+		private Stage dialogStage(Window owner) {
+			if(stage != null && stage.getOwner() != owner) {
+				//A dona s  definida antes de abrir: com outra dona a raiz passa para uma janela nova
+				stage.getScene().setRoot(new Group());
+				stage = null;
+			}
+			if(stage == null) {
+				stage = new Stage();
+				stage.setScene(new Scene(root));
+				stage.setResizable(false);//Diz se a janela pode ou no ser redimencionada
+				stage.initOwner(owner);
+				stage.initModality(Modality.WINDOW_MODAL);//Trava a tela, enquanto voc no fechar ela vc no usa outra
+			}
+			return stage;
+		}
+	}
+}
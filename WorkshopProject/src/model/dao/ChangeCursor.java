@@ -0,0 +1,43 @@
+package model.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A client's place in the change_log. Log ids are taken when a row is
+ * inserted but only become visible when its transaction commits, so a lower
+ * id can show up after higher ones were read. Every log row past position is
+ * read again until it is older than the commit grace period; seen holds the
+ * ones among them already handed out, so each change is applied once.
+ */
+public final class ChangeCursor {
+
+	private final long position;
+	private final Set<Long> seen;
+
+	public ChangeCursor(long position, Collection<Long> seen) {
+		this.position = position;
+		this.seen = Collections.unmodifiableSet(new HashSet<>(seen));
+	}
+
+	public static ChangeCursor at(long position) {
+		return new ChangeCursor(position, Collections.<Long>emptySet());
+	}
+
+	//Toda linha do log at aqui foi lida ou  antiga demais para ainda ser gravada
+	public long getPosition() {
+		return position;
+	}
+
+	//Linhas do log depois de position j lidas
+	public Set<Long> getSeen() {
+		return seen;
+	}
+
+	@Override
+	public String toString() {
+		return position + "+" + seen.size();
+	}
+}
@@ -0,0 +1,15 @@
+package model.dao;
+
+public interface ChangeLogDao {
+
+	long currentCursor();
+
+	//Conforme as linhas que o pool de leitura enxerga, que podem estar atrs do principal
+	ChangeCursor currentReadCursor();
+
+	//Se alguma linha do log depois do cursor ainda no foi vista, no banco principal
+	boolean hasChangesSince(ChangeCursor cursor);
+
+	//Remove as linhas do log mais antigas que o nmero de horas dado; retorna quantas
+	int deleteOlderThan(int hours);
+}
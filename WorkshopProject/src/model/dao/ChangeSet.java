@@ -0,0 +1,42 @@
+package model.dao;
+
+import java.util.List;
+
+/**
+ * Rows written by other clients since a change_log cursor. Inserted and
+ * updated rows carry their current state; deleted rows only their id.
+ */
+public class ChangeSet<T> {
+
+	private final List<T> inserted;
+	private final List<T> updated;
+	private final List<T> deleted;
+	private final ChangeCursor cursor;
+
+	public ChangeSet(List<T> inserted, List<T> updated, List<T> deleted, ChangeCursor cursor) {
+		this.inserted = inserted;
+		this.updated = updated;
+		this.deleted = deleted;
+		this.cursor = cursor;
+	}
+
+	public List<T> getInserted() {
+		return inserted;
+	}
+
+	public List<T> getUpdated() {
+		return updated;
+	}
+
+	public List<T> getDeleted() {
+		return deleted;
+	}
+
+	public ChangeCursor getCursor() {
+		return cursor;
+	}
+
+	public boolean isEmpty() {
+		return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+	}
+}
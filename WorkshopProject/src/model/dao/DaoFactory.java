@@ -1,16 +1,76 @@
 package model.dao;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import db.ConnectionPool;
 import db.DB;
+import db.QueryMetrics;
+import model.dao.impl.ChangeLogDaoJDBC;
 import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.ReportDaoJDBC;
 import model.dao.impl.SellerDaoJDBC;
 
 public class DaoFactory {
 
+	private static final boolean METRICS = Boolean.parseBoolean(DB.getProperties().getProperty("metrics.enabled", "true"));
+
 	public static SellerDao createSellerDao() {
-		return new SellerDaoJDBC(DB.getConnection());
+		return timed(SellerDao.class, new SellerDaoJDBC(DB.getTemplate(), DB.getReadTemplate()));
 	}
 	
 	public static DepartmentDao createDepartmentDao() {
-		return new DepartmentDaoJDBC(DB.getConnection());
+		return timed(DepartmentDao.class, new DepartmentDaoJDBC(DB.getTemplate(), DB.getReadTemplate()));
+	}
+	
+	public static ChangeLogDao createChangeLogDao() {
+		return timed(ChangeLogDao.class, new ChangeLogDaoJDBC(DB.getTemplate(), DB.getReadTemplate()));
+	}
+	
+	public static ReportDao createReportDao() {
+		return timed(ReportDao.class, new ReportDaoJDBC(DB.getTemplate()));
+	}
+	
+	//Abre os pools de conexes e prepara as leituras das primeiras telas em cada conexo
+	public static void warmUp() {
+		List<String> reads = new ArrayList<>(SellerDaoJDBC.warmUpStatements());
+		reads.addAll(DepartmentDaoJDBC.warmUpStatements());
+		ConnectionPool replica = DB.getReadPool();
+		DB.getPool().warmUp(replica == null ? reads : Collections.<String>emptyList());
+		if (replica != null) {
+			replica.warmUp(reads);
+		}
+	}
+	
+	//As chamadas de DAO feitas em work entram nesta transao em vez de gravar sozinhas
+	public static void runInTransaction(Runnable work) {
+		DB.getTemplate().runInTransaction(work);
+	}
+	
+	//Registra cada chamada como "SellerDao.findAll" etc. no QueryMetrics
+	private static <T> T timed(Class<T> type, T target) {
+		if (!METRICS) {
+			return target;
+		}
+		QueryMetrics metrics = QueryMetrics.getInstance();
+		String prefix = type.getSimpleName() + ".";
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				return method.invoke(target, args);
+			}
+			long start = System.nanoTime();
+			try {
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			finally {
+				metrics.recordMethod(prefix + method.getName(), System.nanoTime() - start);
+			}
+		}));
 	}
 }
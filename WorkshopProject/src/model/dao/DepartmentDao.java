@@ -1,5 +1,6 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import model.entities.Department;
@@ -9,6 +10,10 @@ public interface DepartmentDao {
 	void insert(Department obj);
 	void update(Department obj);
 	void deleteById(Integer id);
+	void insertAll(List<Department> list);
+	void updateAll(List<Department> list);
+	void deleteByIds(Collection<Integer> ids);
 	Department findById(Integer id);
 	List<Department> findAll();
+	ChangeSet<Department> findChangedSince(ChangeCursor cursor);
 }
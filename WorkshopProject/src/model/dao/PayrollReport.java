@@ -0,0 +1,78 @@
+package model.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import model.entities.DepartmentPayroll;
+
+/**
+ * Payroll per department, read in one snapshot together with the change_log
+ * cursor of that snapshot. While no log row past the cursor is unseen no
+ * seller or department was written, so the report is still current.
+ */
+public class PayrollReport {
+
+	private final List<DepartmentPayroll> departments;
+	private final ChangeCursor cursor;
+	private final Date generatedAt;
+
+	public PayrollReport(List<DepartmentPayroll> departments, ChangeCursor cursor, Date generatedAt) {
+		this.departments = departments;
+		this.cursor = cursor;
+		this.generatedAt = generatedAt;
+	}
+
+	public List<DepartmentPayroll> getDepartments() {
+		return departments;
+	}
+
+	public ChangeCursor getCursor() {
+		return cursor;
+	}
+
+	public Date getGeneratedAt() {
+		return generatedAt;
+	}
+
+	public int getHeadcount() {
+		int total = 0;
+		for (DepartmentPayroll row : departments) {
+			total += row.getHeadcount();
+		}
+		return total;
+	}
+
+	public double getTotalSalary() {
+		double total = 0;
+		for (DepartmentPayroll row : departments) {
+			total += row.getTotalSalary();
+		}
+		return total;
+	}
+
+	//Ponderada pelo nmero de vendedores, no a mdia das mdias dos departamentos
+	public Double getAverageSalary() {
+		int headcount = getHeadcount();
+		return headcount == 0 ? null : getTotalSalary() / headcount;
+	}
+
+	public Double getMinSalary() {
+		Double min = null;
+		for (DepartmentPayroll row : departments) {
+			if (row.getMinSalary() != null && (min == null || row.getMinSalary() < min)) {
+				min = row.getMinSalary();
+			}
+		}
+		return min;
+	}
+
+	public Double getMaxSalary() {
+		Double max = null;
+		for (DepartmentPayroll row : departments) {
+			if (row.getMaxSalary() != null && (max == null || row.getMaxSalary() > max)) {
+				max = row.getMaxSalary();
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,123 @@
+package model.dao;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import db.DB;
+import db.DbException;
+import db.JdbcTemplate;
+import db.QueryPlanChecker;
+import model.dao.impl.DepartmentCache;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Verification mode of the schema: runs every DAO read once with sample
+ * arguments under a {@link QueryPlanChecker} and fails when a plan scans a
+ * whole table or needs a filesort. findAll and streamAll read every seller by
+ * design and are left out, and so are wide salary and birth date ranges: the
+ * rows of a range are sorted by name after it is read, cheap only while the
+ * range is selective, so those ranges are checked on one sample seller. Runs
+ * on startup with schema.verify=true, or from the command line, exiting with
+ * status 1 when a plan is reported.
+ */
+public class QueryPlanVerifier {
+
+	private static final int PAGE = 20;
+
+	public static List<String> check() {
+		JdbcTemplate jdbc = DB.getTemplate();
+		QueryPlanChecker checker = new QueryPlanChecker(DB.getPool(), DB.getIntProperty("schema.verify.maxScanRows", 100));
+		jdbc.addInterceptor(checker);
+		try {
+			SellerDao sellerDao = DaoFactory.createSellerDao();
+			DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+			ChangeLogDao changeLogDao = DaoFactory.createChangeLogDao();
+
+			//O cache j vem cheio do aquecimento; sem esvaziar, as leituras de departamento nem chegam ao banco
+			DepartmentCache.getInstance().invalidateAll();
+			List<Department> departments = departmentDao.findAll();
+			Department department = departments.isEmpty() ? new Department(0, null) : departments.get(0);
+			DepartmentCache.getInstance().invalidateAll();
+			departmentDao.findById(department.getId());
+
+			List<Seller> page = sellerDao.findPage(null, null, PAGE);
+			Seller seller = page.isEmpty() ? new Seller(0, "a", "a", null, 0.0, department) : page.get(0);
+			sellerDao.findPage(seller.getName(), seller.getId(), PAGE);
+			sellerDao.findById(seller.getId());
+			sellerDao.findByDepartment(department);
+			try (Stream<Seller> stream = sellerDao.streamByDepartment(department)) {
+				stream.limit(PAGE).count();
+			}
+			sellerDao.count();
+
+			//As buscas da lista de vendedores: cada filtro por pgina, pelo keyset e pelo salto com OFFSET
+			SellerCriteria byName = new SellerCriteria();
+			byName.setNamePrefix(prefix(seller.getName()));
+			SellerCriteria byEmail = new SellerCriteria();
+			byEmail.setEmailPrefix(prefix(seller.getEmail()));
+			SellerCriteria byDepartment = new SellerCriteria();
+			byDepartment.setDepartmentIds(Collections.singleton(department.getId()));
+			SellerCriteria bySalary = new SellerCriteria();
+			bySalary.setMinBaseSalary(seller.getBaseSalary());
+			bySalary.setMaxBaseSalary(seller.getBaseSalary());
+			Date birthDate = seller.getBirthDate() != null ? seller.getBirthDate() : new Date();
+			SellerCriteria byBirthDate = new SellerCriteria();
+			byBirthDate.setMinBirthDate(birthDate);
+			byBirthDate.setMaxBirthDate(birthDate);
+			for (SellerCriteria criteria : new SellerCriteria[] { byName, byEmail, byDepartment, bySalary, byBirthDate }) {
+				sellerDao.count(criteria);
+				criteria.setLimit(PAGE);
+				sellerDao.search(criteria);
+				criteria.setAfter(seller.getName(), seller.getId());
+				sellerDao.search(criteria);
+				criteria.setAfter(null, null);
+				criteria.setOffset(PAGE);
+				sellerDao.search(criteria);
+			}
+			SellerCriteria byOffset = new SellerCriteria();
+			byOffset.setOffset(PAGE);
+			byOffset.setLimit(PAGE);
+			sellerDao.search(byOffset);
+
+			ChangeCursor cursor = ChangeCursor.at(Math.max(0, changeLogDao.currentCursor() - PAGE));
+			sellerDao.findChangedSince(cursor);
+			departmentDao.findChangedSince(cursor);
+			changeLogDao.currentReadCursor();
+
+			DaoFactory.createReportDao().departmentPayroll();
+			return checker.getProblems();
+		}
+		finally {
+			jdbc.removeInterceptor(checker);
+		}
+	}
+
+	public static void verify() {
+		List<String> problems = check();
+		if (!problems.isEmpty()) {
+			throw new DbException("Query plans without a usable index:\n" + String.join("\n", problems));
+		}
+	}
+
+	private static String prefix(String value) {
+		return value.length() > 3 ? value.substring(0, 3) : value;
+	}
+
+	public static void main(String[] args) {
+		List<String> problems;
+		try {
+			problems = check();
+		}
+		finally {
+			DB.closeConnection();
+		}
+		for (String problem : problems) {
+			System.out.println(problem);
+		}
+		System.out.println(problems.isEmpty() ? "All query plans use an index" : problems.size() + " query plan(s) reported");
+		System.exit(problems.isEmpty() ? 0 : 1);
+	}
+}
@@ -0,0 +1,6 @@
+package model.dao;
+
+public interface ReportDao {
+
+	PayrollReport departmentPayroll();
+}
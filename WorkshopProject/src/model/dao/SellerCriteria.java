@@ -0,0 +1,171 @@
+package model.dao;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import model.entities.Seller;
+
+/**
+ * Filter for SellerDao.search. Unset fields (null or empty) do not restrict
+ * the result. Results are ordered by Name, Id; a page is either the rows after
+ * (afterName, afterId) or, without a keyset, the rows after offset.
+ */
+public class SellerCriteria {
+
+	private String namePrefix;
+	private String emailPrefix;
+	private Set<Integer> departmentIds = Collections.emptySet();
+	private Double minBaseSalary;
+	private Double maxBaseSalary;
+	private Date minBirthDate;
+	private Date maxBirthDate;
+
+	private String afterName;
+	private Integer afterId;
+	private int offset;
+	private int limit;
+
+	public SellerCriteria() {
+	}
+
+	//Mesmo filtro, sem pgina
+	public SellerCriteria(SellerCriteria other) {
+		this.namePrefix = other.namePrefix;
+		this.emailPrefix = other.emailPrefix;
+		this.departmentIds = other.departmentIds;
+		this.minBaseSalary = other.minBaseSalary;
+		this.maxBaseSalary = other.maxBaseSalary;
+		this.minBirthDate = other.minBirthDate;
+		this.maxBirthDate = other.maxBirthDate;
+	}
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = blankToNull(namePrefix);
+	}
+
+	public String getEmailPrefix() {
+		return emailPrefix;
+	}
+
+	public void setEmailPrefix(String emailPrefix) {
+		this.emailPrefix = blankToNull(emailPrefix);
+	}
+
+	public Set<Integer> getDepartmentIds() {
+		return departmentIds;
+	}
+
+	public void setDepartmentIds(Set<Integer> departmentIds) {
+		this.departmentIds = departmentIds == null ? Collections.<Integer>emptySet()
+				: Collections.unmodifiableSet(new HashSet<>(departmentIds));
+	}
+
+	public Double getMinBaseSalary() {
+		return minBaseSalary;
+	}
+
+	public void setMinBaseSalary(Double minBaseSalary) {
+		this.minBaseSalary = minBaseSalary;
+	}
+
+	public Double getMaxBaseSalary() {
+		return maxBaseSalary;
+	}
+
+	public void setMaxBaseSalary(Double maxBaseSalary) {
+		this.maxBaseSalary = maxBaseSalary;
+	}
+
+	public Date getMinBirthDate() {
+		return minBirthDate;
+	}
+
+	public void setMinBirthDate(Date minBirthDate) {
+		this.minBirthDate = minBirthDate;
+	}
+
+	public Date getMaxBirthDate() {
+		return maxBirthDate;
+	}
+
+	public void setMaxBirthDate(Date maxBirthDate) {
+		this.maxBirthDate = maxBirthDate;
+	}
+
+	public String getAfterName() {
+		return afterName;
+	}
+
+	public Integer getAfterId() {
+		return afterId;
+	}
+
+	//Continuao por keyset: as linhas que vm depois desta na ordem
+	public void setAfter(String afterName, Integer afterId) {
+		this.afterName = afterName;
+		this.afterId = afterId;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	//0  sem limite
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	public boolean isUnfiltered() {
+		return namePrefix == null && emailPrefix == null && departmentIds.isEmpty() && minBaseSalary == null
+				&& maxBaseSalary == null && minBirthDate == null && maxBirthDate == null;
+	}
+
+	//O mesmo teste do SQL (prefixos sem diferenciar maisculas, como na collation do MySQL)
+	public boolean matches(Seller obj) {
+		if (namePrefix != null && !startsWithIgnoreCase(obj.getName(), namePrefix)) {
+			return false;
+		}
+		if (emailPrefix != null && !startsWithIgnoreCase(obj.getEmail(), emailPrefix)) {
+			return false;
+		}
+		if (!departmentIds.isEmpty()
+				&& (obj.getDepartment() == null || !departmentIds.contains(obj.getDepartment().getId()))) {
+			return false;
+		}
+		if (minBaseSalary != null && (obj.getBaseSalary() == null || obj.getBaseSalary() < minBaseSalary)) {
+			return false;
+		}
+		if (maxBaseSalary != null && (obj.getBaseSalary() == null || obj.getBaseSalary() > maxBaseSalary)) {
+			return false;
+		}
+		if (minBirthDate != null && (obj.getBirthDate() == null || obj.getBirthDate().before(minBirthDate))) {
+			return false;
+		}
+		if (maxBirthDate != null && (obj.getBirthDate() == null || obj.getBirthDate().after(maxBirthDate))) {
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean startsWithIgnoreCase(String value, String prefix) {
+		return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim();
+	}
+}
@@ -1,6 +1,8 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import model.entities.Department;
 import model.entities.Seller;
@@ -10,7 +12,20 @@ public interface SellerDao {
 	void insert(Seller obj);
 	void update(Seller obj);
 	void deleteById(Integer id);
+	void insertAll(List<Seller> list);
+	void updateAll(List<Seller> list);
+	void deleteByIds(Collection<Integer> ids);
 	Seller findById(Integer id);
 	List<Seller> findAll();
 	List<Seller> findByDepartment(Department department);
+
+	//Todos os vendedores de "from" passam para "to" num comando s, no principal; retorna os ids movidos
+	List<Integer> moveToDepartment(Department from, Department to);
+	Stream<Seller> streamAll();
+	Stream<Seller> streamByDepartment(Department department);
+	List<Seller> findPage(String afterName, Integer afterId, int limit);
+	int count();
+	List<Seller> search(SellerCriteria criteria);
+	int count(SellerCriteria criteria);
+	ChangeSet<Seller> findChangedSince(ChangeCursor cursor);
 }
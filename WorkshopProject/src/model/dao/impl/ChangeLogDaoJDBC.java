@@ -0,0 +1,210 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import db.DB;
+import db.JdbcTemplate;
+import model.dao.ChangeCursor;
+import model.dao.ChangeLogDao;
+
+/**
+ * Every DAO write appends one change_log row per affected id inside the same
+ * transaction. Other clients read the log past their cursor to find out which
+ * rows to fetch again (see db/migration/V2__change_log.sql). A log id is
+ * taken at insert time but read at commit time, so the rows of the last
+ * sync.commitGraceSec seconds are read again on every poll (see ChangeCursor).
+ */
+public class ChangeLogDaoJDBC implements ChangeLogDao {
+
+	static final String SELLER = "seller";
+	static final String DEPARTMENT = "department";
+
+	static final char INSERTED = 'I';
+	static final char UPDATED = 'U';
+	static final char DELETED = 'D';
+
+	//Identifica as linhas gravadas por este processo, que ele mesmo j aplicou
+	private static final String CLIENT_ID = UUID.randomUUID().toString();
+
+	//Tempo mximo que uma transao de escrita pode ficar aberta e ainda ter suas linhas do log lidas
+	private static final int COMMIT_GRACE_SEC = DB.getIntProperty("sync.commitGraceSec", 30);
+
+	private JdbcTemplate jdbc;
+
+	private JdbcTemplate reads;
+
+	public ChangeLogDaoJDBC(JdbcTemplate jdbc, JdbcTemplate reads) {
+		this.jdbc = jdbc;
+		this.reads = reads;
+	}
+
+	@Override
+	public long currentCursor() {
+		return currentCursor(jdbc);
+	}
+
+	//O log  replicado com as linhas que descreve, ento o cursor da rplica bate com os dados dela
+	@Override
+	public ChangeCursor currentReadCursor() {
+		return readCursor(reads);
+	}
+
+	//As vistas esto todas depois da posio, ento basta contar
+	@Override
+	public boolean hasChangesSince(ChangeCursor cursor) {
+		long count = jdbc.queryForObject("SELECT COUNT(*) FROM change_log WHERE Id > ?",
+				rs -> rs.getLong(1), cursor.getPosition());
+		return count > cursor.getSeen().size();
+	}
+
+	//Em partes, para o delete no segurar locks por muito tempo num log grande
+	@Override
+	public int deleteOlderThan(int hours) {
+		int total = 0;
+		int deleted;
+		do {
+			deleted = jdbc.update(
+					"DELETE FROM change_log "
+					+ "WHERE ChangedAt < TIMESTAMPADD(HOUR, ?, CURRENT_TIMESTAMP) "
+					+ "LIMIT ?",
+					-hours, jdbc.getChunkSize());
+			total += deleted;
+		} while (deleted == jdbc.getChunkSize());
+		return total;
+	}
+
+	//Entra na transao de quem chama: uma leitura em snapshot v o cursor que bate com os dados
+	static long currentCursor(JdbcTemplate jdbc) {
+		return jdbc.queryForObject("SELECT COALESCE(MAX(Id), 0) FROM change_log", rs -> rs.getLong(1));
+	}
+
+	//Entra na transao de quem chama. A posio  a ltima linha mais antiga que o prazo; as visveis depois
+	//dela contam como vistas. Uma linha ainda no confirmada dentro do prazo foi inserida depois dessa ltima,
+	//ento tem id maior que a posio e  lida quando aparecer, mesmo que outras mais novas j tenham aparecido
+	static ChangeCursor readCursor(JdbcTemplate jdbc) {
+		Long settled = jdbc.queryForObject(
+				"SELECT Id FROM change_log "
+				+ "WHERE ChangedAt < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) "
+				+ "ORDER BY ChangedAt DESC "
+				+ "LIMIT 1",
+				rs -> rs.getLong(1), -COMMIT_GRACE_SEC);
+		long position = settled == null ? 0L : settled;
+		List<Long> seen = jdbc.query("SELECT Id FROM change_log WHERE Id > ?", rs -> rs.getLong(1), position);
+		return new ChangeCursor(position, seen);
+	}
+
+	//Entra na transao de quem chama
+	static void record(JdbcTemplate jdbc, String entityType, char operation, Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		jdbc.batchUpdate(
+				"INSERT INTO change_log "
+				+ "(EntityType, EntityId, Operation, ClientId) "
+				+ "VALUES "
+				+ "(?, ?, ?, ?)",
+				new ArrayList<>(ids), (st, id) -> {
+					st.setString(1, entityType);
+					st.setInt(2, id);
+					st.setString(3, String.valueOf(operation));
+					st.setString(4, CLIENT_ID);
+				});
+	}
+
+	//L at limit linhas do log ainda no vistas depois do cursor e junta numa operao por id;
+	//as j vistas voltam tambm, ento o limite cresce pelo nmero delas
+	static Changes readSince(JdbcTemplate jdbc, String entityType, ChangeCursor cursor, int limit) {
+		List<LogRow> rows = jdbc.query(
+				"SELECT Id, EntityId, Operation, ClientId, "
+				+ "CASE WHEN ChangedAt < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) THEN 1 ELSE 0 END "
+				+ "FROM change_log "
+				+ "WHERE EntityType = ? AND Id > ? "
+				+ "ORDER BY Id "
+				+ "LIMIT ?",
+				rs -> new LogRow(rs.getLong(1), rs.getInt(2), rs.getString(3).charAt(0), rs.getString(4),
+						rs.getInt(5) == 1),
+				-COMMIT_GRACE_SEC, entityType, cursor.getPosition(), cursor.getSeen().size() + limit);
+
+		long position = cursor.getPosition();
+		Set<Long> seen = new HashSet<>(cursor.getSeen());
+		Changes changes = new Changes();
+		for (LogRow row : rows) {
+			if (row.settled) {
+				//Um id menor que no apareceu at agora  de uma transao desfeita
+				position = row.id;
+			}
+			if (!seen.add(row.id) || CLIENT_ID.equals(row.clientId)) {
+				continue;
+			}
+			Character previous = changes.operations.get(row.entityId);
+			if (previous != null && previous == INSERTED) {
+				if (row.operation == DELETED) {
+					//Nunca visto por este cliente: nada a aplicar
+					changes.operations.remove(row.entityId);
+				}
+				continue;
+			}
+			changes.operations.put(row.entityId, row.operation);
+		}
+		long settled = position;
+		seen.removeIf(id -> id <= settled);
+		changes.cursor = new ChangeCursor(position, seen);
+		return changes;
+	}
+
+	private static class LogRow {
+
+		final long id;
+		final int entityId;
+		final char operation;
+		final String clientId;
+		//Mais antiga que o prazo
+		final boolean settled;
+
+		LogRow(long id, int entityId, char operation, String clientId, boolean settled) {
+			this.id = id;
+			this.entityId = entityId;
+			this.operation = operation;
+			this.clientId = clientId;
+			this.settled = settled;
+		}
+	}
+
+	static class Changes {
+
+		ChangeCursor cursor;
+		final Map<Integer, Character> operations = new LinkedHashMap<>();
+
+		List<Integer> idsToFetch() {
+			List<Integer> ids = new ArrayList<>();
+			for (Map.Entry<Integer, Character> entry : operations.entrySet()) {
+				if (entry.getValue() != DELETED) {
+					ids.add(entry.getKey());
+				}
+			}
+			return ids;
+		}
+
+		List<Integer> deletedIds() {
+			List<Integer> ids = new ArrayList<>();
+			for (Map.Entry<Integer, Character> entry : operations.entrySet()) {
+				if (entry.getValue() == DELETED) {
+					ids.add(entry.getKey());
+				}
+			}
+			return ids;
+		}
+
+		boolean isInsert(Integer id) {
+			Character operation = operations.get(id);
+			return operation != null && operation == INSERTED;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import db.DB;
+import model.entities.Department;
+
+/**
+ * Process-wide cache of the department table. Every DAO resolves departments
+ * through {@link #canonical(int, String)}, so all sellers share one Department
+ * instance per id. Entries expire after cache.department.ttlMs and are
+ * replaced or dropped by the department writes. A cached instance is never
+ * changed: the screens read it on the JavaFX thread while the DAOs run on
+ * worker threads, so a new name gets a new instance, which the lists pick up
+ * the next time they read the department or its sellers.
+ */
+public class DepartmentCache {
+
+	private static final DepartmentCache instance = new DepartmentCache();
+
+	private final ConcurrentHashMap<Integer, Department> byId = new ConcurrentHashMap<>();
+	private volatile List<Department> all;
+	private volatile long loadedAt;
+	private final long ttlMs;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private DepartmentCache() {
+		ttlMs = DB.getIntProperty("cache.department.ttlMs", 600000);
+	}
+
+	public static DepartmentCache getInstance() {
+		return instance;
+	}
+
+	public List<Department> getAll(Supplier<List<Department>> loader) {
+		expireIfStale();
+		List<Department> snapshot = all;
+		if (snapshot != null) {
+			hits.incrementAndGet();
+			return new ArrayList<>(snapshot);
+		}
+		misses.incrementAndGet();
+		List<Department> list = new ArrayList<>();
+		for (Department dep : loader.get()) {
+			list.add(canonical(dep.getId(), dep.getName()));
+		}
+		all = list;
+		return new ArrayList<>(list);
+	}
+
+	public Department get(Integer id) {
+		expireIfStale();
+		Department dep = byId.get(id);
+		if (dep != null) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+		}
+		return dep;
+	}
+
+	public Department canonical(int id, String name) {
+		if (byId.isEmpty() && loadedAt == 0L) {
+			loadedAt = System.currentTimeMillis();
+		}
+		Department cached = byId.get(id);
+		if (cached != null && (name == null || name.equals(cached.getName()))) {
+			return cached;
+		}
+		Department dep = byId.compute(id, (key, current) -> current != null
+				&& (name == null || name.equals(current.getName())) ? current : clean(id, name));
+		//A lista de todos ainda tem a instncia com o nome antigo
+		if (cached != null && dep != cached) {
+			all = null;
+		}
+		return dep;
+	}
+
+	//Chamado depois de uma escrita; o cache guarda uma cpia, no a instncia de quem gravou, que ainda pode mudar
+	public void put(Department obj) {
+		byId.compute(obj.getId(), (key, current) -> current != null
+				&& Objects.equals(current.getName(), obj.getName()) ? current : clean(obj.getId(), obj.getName()));
+		all = null;
+	}
+
+	private static Department clean(Integer id, String name) {
+		Department obj = new Department(id, name);
+		obj.markClean();
+		return obj;
+	}
+
+	public void invalidate(Integer id) {
+		byId.remove(id);
+		all = null;
+	}
+
+	public void invalidateAll() {
+		byId.clear();
+		all = null;
+		loadedAt = 0L;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return byId.size();
+	}
+
+	private void expireIfStale() {
+		long loaded = loadedAt;
+		if (loaded != 0L && System.currentTimeMillis() - loaded > ttlMs) {
+			invalidateAll();
+		}
+	}
+}
@@ -1,153 +1,227 @@
 package model.dao.impl;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import db.DB;
 import db.DbException;
 import db.DbIntegrityException;
+import db.JdbcTemplate;
+import model.dao.ChangeCursor;
+import model.dao.ChangeSet;
 import model.dao.DepartmentDao;
 import model.entities.Department;
 
 public class DepartmentDaoJDBC implements DepartmentDao {
 
-	private Connection conn;
+	private static final String INSERT_SQL =
+			"INSERT INTO department " +
+			"(Name) " +
+			"VALUES " +
+			"(?)";
+
+	private static final String UPDATE_SQL =
+			"UPDATE department " +
+			"SET Name = ? " +
+			"WHERE Id = ?";
+
+	private static final String FIND_BY_ID_SQL = "SELECT * FROM department WHERE Id = ?";
+
+	private static final String FIND_ALL_SQL = "SELECT * FROM department ORDER BY Name";
+
+	private JdbcTemplate jdbc;
 	
-	public DepartmentDaoJDBC(Connection conn) {
-		this.conn = conn;
+	//findById e findAll, que podem rodar numa rplica
+	private JdbcTemplate reads;
+	
+	private DepartmentCache cache = DepartmentCache.getInstance();
+	
+	public DepartmentDaoJDBC(JdbcTemplate jdbc, JdbcTemplate reads) {
+		this.jdbc = jdbc;
+		this.reads = reads;
 	}
 	
 	@Override
 	public Department findById(Integer id) {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = conn.prepareStatement(
-				"SELECT * FROM department WHERE Id = ?");
-			st.setInt(1, id);
-			rs = st.executeQuery();
-			if (rs.next()) {
-				Department obj = new Department();
-				obj.setId(rs.getInt("Id"));
-				obj.setName(rs.getString("Name"));
-				return obj;
-			}
-			return null;
-		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
-		}
-		finally {
-			DB.closeStatement(st);
-			DB.closeResultSet(rs);
+		Department cached = cache.get(id);
+		if (cached != null) {
+			return cached;
 		}
+		return reads.queryForObject(FIND_BY_ID_SQL, Mappers.DEPARTMENT, id);
 	}
 
 	@Override
 	public List<Department> findAll() {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = conn.prepareStatement(
-				"SELECT * FROM department ORDER BY Name");
-			rs = st.executeQuery();
+		return cache.getAll(this::queryAll);
+	}
 
-			List<Department> list = new ArrayList<>();
+	private List<Department> queryAll() {
+		return reads.query(FIND_ALL_SQL, Mappers.DEPARTMENT);
+	}
 
-			while (rs.next()) {
-				Department obj = new Department();
-				obj.setId(rs.getInt("Id"));
-				obj.setName(rs.getString("Name"));
-				list.add(obj);
-			}
-			return list;
-		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
-		}
-		finally {
-			DB.closeStatement(st);
-			DB.closeResultSet(rs);
-		}
+	//As leituras da lista de departamentos e da caixa de departamento do formulrio de vendedor
+	public static List<String> warmUpStatements() {
+		return Arrays.asList(FIND_ALL_SQL, FIND_BY_ID_SQL);
 	}
 
 	@Override
 	public void insert(Department obj) {
-		PreparedStatement st = null;
 		try {
-			st = conn.prepareStatement(
-				"INSERT INTO department " +
-				"(Name) " +
-				"VALUES " +
-				"(?)", 
-				Statement.RETURN_GENERATED_KEYS);
-
-			st.setString(1, obj.getName());
-
-			int rowsAffected = st.executeUpdate();
-			
-			if (rowsAffected > 0) {
-				ResultSet rs = st.getGeneratedKeys();
-				if (rs.next()) {
-					int id = rs.getInt(1);
-					obj.setId(id);
-				}
-			}
-			else {
-				throw new DbException("Unexpected error! No rows affected!");
-			}
+			jdbc.runInTransaction(() -> {
+				obj.setId(jdbc.insertReturningKey(INSERT_SQL, obj.getName()));
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.INSERTED,
+						Collections.singletonList(obj.getId()));
+			});
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
-		} 
-		finally {
-			DB.closeStatement(st);
+		catch (RuntimeException e) {
+			obj.setId(null);
+			throw e;
 		}
+		obj.markClean();
+		cache.put(obj);
 	}
 
+	//Um departamento sem alterao no chega ao banco
 	@Override
 	public void update(Department obj) {
-		PreparedStatement st = null;
-		try {
-			st = conn.prepareStatement(
-				"UPDATE department " +
-				"SET Name = ? " +
-				"WHERE Id = ?");
-
-			st.setString(1, obj.getName());
-			st.setInt(2, obj.getId());
+		if (!obj.isDirty()) {
+			return;
+		}
+		jdbc.runInTransaction(() -> {
+			jdbc.update(UPDATE_SQL, obj.getName(), obj.getId());
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.UPDATED,
+					Collections.singletonList(obj.getId()));
+		});
+		obj.markClean();
+		cache.put(obj);
+	}
 
-			st.executeUpdate();
+	@Override
+	public void deleteById(Integer id) {
+		try {
+			jdbc.runInTransaction(() -> {
+				jdbc.update("DELETE FROM department WHERE Id = ?", id);
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.DELETED,
+						Collections.singletonList(id));
+			});
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
-		} 
-		finally {
-			DB.closeStatement(st);
+		catch (DbException e) {
+			throw new DbIntegrityException(e.getMessage());
 		}
+		cache.invalidate(id);
 	}
 
 	@Override
-	public void deleteById(Integer id) {
-		PreparedStatement st = null;
+	public void insertAll(List<Department> list) {
+		if (list.isEmpty()) {
+			return;
+		}
 		try {
-			st = conn.prepareStatement(
-				"DELETE FROM department WHERE Id = ?");
+			jdbc.runInTransaction(() -> {
+				jdbc.batchInsert(INSERT_SQL, list, (st, obj) -> st.setString(1, obj.getName()), Department::setId);
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.INSERTED, ids(list));
+			});
+		}
+		catch (RuntimeException e) {
+			for (Department obj : list) {
+				obj.setId(null);
+			}
+			throw e;
+		}
+		for (Department obj : list) {
+			obj.markClean();
+			cache.put(obj);
+		}
+	}
 
-			st.setInt(1, id);
+	@Override
+	public void updateAll(List<Department> list) {
+		List<Department> dirty = new ArrayList<>();
+		for (Department obj : list) {
+			if (obj.isDirty()) {
+				dirty.add(obj);
+			}
+		}
+		if (dirty.isEmpty()) {
+			return;
+		}
+		jdbc.runInTransaction(() -> {
+			jdbc.batchUpdate(UPDATE_SQL, dirty, (st, obj) -> {
+				st.setString(1, obj.getName());
+				st.setInt(2, obj.getId());
+			});
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.UPDATED, ids(dirty));
+		});
+		for (Department obj : dirty) {
+			obj.markClean();
+			cache.put(obj);
+		}
+	}
 
-			st.executeUpdate();
+	@Override
+	public void deleteByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		List<Integer> list = new ArrayList<>(ids);
+		int chunkSize = jdbc.getChunkSize();
+		try {
+			jdbc.runInTransaction(() -> {
+				for (int from = 0; from < list.size(); from += chunkSize) {
+					List<Integer> chunk = list.subList(from, Math.min(from + chunkSize, list.size()));
+					jdbc.update("DELETE FROM department WHERE Id IN (" + DB.placeholders(chunk.size()) + ")",
+							chunk.toArray());
+				}
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.DEPARTMENT, ChangeLogDaoJDBC.DELETED, list);
+			});
 		}
-		catch (SQLException e) {
+		catch (DbException e) {
 			throw new DbIntegrityException(e.getMessage());
-		} 
-		finally {
-			DB.closeStatement(st);
 		}
+		for (Integer id : list) {
+			cache.invalidate(id);
+		}
+	}
+
+	@Override
+	public ChangeSet<Department> findChangedSince(ChangeCursor cursor) {
+		ChangeLogDaoJDBC.Changes changes = ChangeLogDaoJDBC.readSince(jdbc, ChangeLogDaoJDBC.DEPARTMENT, cursor,
+				jdbc.getChunkSize());
+		
+		List<Department> inserted = new ArrayList<>();
+		List<Department> updated = new ArrayList<>();
+		List<Integer> ids = changes.idsToFetch();
+		if (!ids.isEmpty()) {
+			List<Department> rows = jdbc.query(
+					"SELECT * FROM department WHERE Id IN (" + DB.placeholders(ids.size()) + ")",
+					Mappers.DEPARTMENT, ids.toArray());
+			for (Department obj : rows) {
+				cache.put(obj);
+				if (changes.isInsert(obj.getId())) {
+					inserted.add(obj);
+				}
+				else {
+					updated.add(obj);
+				}
+			}
+		}
+		
+		List<Department> deleted = new ArrayList<>();
+		for (Integer id : changes.deletedIds()) {
+			cache.invalidate(id);
+			deleted.add(new Department(id, null));
+		}
+		return new ChangeSet<>(inserted, updated, deleted, changes.cursor);
+	}
+
+	private List<Integer> ids(List<Department> list) {
+		List<Integer> ids = new ArrayList<>(list.size());
+		for (Department obj : list) {
+			ids.add(obj.getId());
+		}
+		return ids;
 	}
 }
@@ -0,0 +1,47 @@
+package model.dao.impl;
+
+import java.sql.Timestamp;
+
+import db.CompiledMapper;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Row mappers shared by the DAOs. Column positions are resolved once per
+ * result shape; sellers get their department from {@link DepartmentCache}.
+ */
+public final class Mappers {
+
+	public static final CompiledMapper<Seller> SELLER = new CompiledMapper<>(columns -> {
+		int id = columns.index("Id");
+		int name = columns.index("Name");
+		int email = columns.index("Email");
+		int birthDate = columns.index("BirthDate");
+		int baseSalary = columns.index("BaseSalary");
+		int departmentId = columns.index("DepartmentId");
+		int depName = columns.index("DepName");
+		DepartmentCache departments = DepartmentCache.getInstance();
+		return rs -> {
+			Seller obj = new Seller();
+			obj.setId(rs.getInt(id));
+			obj.setName(rs.getString(name));
+			obj.setEmail(rs.getString(email));
+			obj.setBaseSalary(rs.getDouble(baseSalary));
+			Timestamp birth = rs.getTimestamp(birthDate);
+			obj.setBirthDate(new java.util.Date(birth.getTime()));
+			obj.setDepartment(departments.canonical(rs.getInt(departmentId), rs.getString(depName)));
+			obj.markClean();
+			return obj;
+		};
+	});
+
+	public static final CompiledMapper<Department> DEPARTMENT = new CompiledMapper<>(columns -> {
+		int id = columns.index("Id");
+		int name = columns.index("Name");
+		DepartmentCache departments = DepartmentCache.getInstance();
+		return rs -> departments.canonical(rs.getInt(id), rs.getString(name));
+	});
+
+	private Mappers() {
+	}
+}
@@ -0,0 +1,50 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import db.JdbcTemplate;
+import model.dao.ChangeCursor;
+import model.dao.PayrollReport;
+import model.dao.ReportDao;
+import model.entities.DepartmentPayroll;
+
+public class ReportDaoJDBC implements ReportDao {
+
+	//Os vendedores so agregados antes (pelo ndice de cobertura do V4__payroll_report_index.sql)
+	//e s os totais por departamento entram no join; departamento sem vendedor ainda tem linha
+	private static final String PAYROLL_SQL =
+			"SELECT department.Id, department.Name, "
+			+ "COALESCE(payroll.Headcount, 0), COALESCE(payroll.Total, 0), "
+			+ "payroll.Average, payroll.Minimum, payroll.Maximum "
+			+ "FROM department LEFT JOIN ("
+			+ "SELECT DepartmentId, COUNT(*) AS Headcount, SUM(BaseSalary) AS Total, "
+			+ "AVG(BaseSalary) AS Average, MIN(BaseSalary) AS Minimum, MAX(BaseSalary) AS Maximum "
+			+ "FROM seller GROUP BY DepartmentId"
+			+ ") payroll ON payroll.DepartmentId = department.Id "
+			+ "ORDER BY department.Name";
+
+	private JdbcTemplate jdbc;
+
+	public ReportDaoJDBC(JdbcTemplate jdbc) {
+		this.jdbc = jdbc;
+	}
+
+	@Override
+	public PayrollReport departmentPayroll() {
+		return jdbc.inReadOnlySnapshot(() -> {
+			ChangeCursor cursor = ChangeLogDaoJDBC.readCursor(jdbc);
+			List<DepartmentPayroll> rows = jdbc.query(PAYROLL_SQL, rs -> new DepartmentPayroll(
+					rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getDouble(4),
+					nullableDouble(rs, 5), nullableDouble(rs, 6), nullableDouble(rs, 7)));
+			return new PayrollReport(rows, cursor, new Date());
+		});
+	}
+
+	private static Double nullableDouble(ResultSet rs, int column) throws SQLException {
+		double value = rs.getDouble(column);
+		return rs.wasNull() ? null : value;
+	}
+}
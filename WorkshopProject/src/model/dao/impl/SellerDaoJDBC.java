@@ -1,238 +1,401 @@
 package model.dao.impl;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
-import com.mysql.jdbc.Statement;
+import java.util.stream.Stream;
 
 import db.DB;
-import db.DbException;
+import db.JdbcTemplate;
+import model.dao.ChangeCursor;
+import model.dao.ChangeSet;
+import model.dao.SellerCriteria;
 import model.dao.SellerDao;
 import model.entities.Department;
 import model.entities.Seller;
 
 public class SellerDaoJDBC implements SellerDao {
 
-	private Connection conn;
+	private static final String SELECT_SQL =
+			"SELECT seller.*,department.Name as DepName "
+			+ "FROM seller INNER JOIN department "
+			+ "ON seller.DepartmentId = department.Id ";
+
+	private static final String INSERT_SQL =
+			"INSERT INTO seller "
+			+ "(Name, Email, BirthDate, BaseSalary, DepartmentId) "
+			+ "VALUES "
+			+ "(?, ?, ?, ?, ?)";
+	
+	private static final String COUNT_SQL =
+			"SELECT COUNT(*) FROM seller INNER JOIN department "
+			+ "ON seller.DepartmentId = department.Id";
+	
+	private static final String FIND_BY_ID_SQL = SELECT_SQL + "WHERE seller.Id = ?";
+	
+	//Na ordem dos bits de Seller.getDirtyColumns()
+	private static final String[] UPDATE_COLUMNS = { "Name", "Email", "BirthDate", "BaseSalary", "DepartmentId" };
+	
+	//Um UPDATE por conjunto de colunas alteradas, montado uma vez para cada formato reaproveitar o statement do cache
+	private static final String[] UPDATE_SQL = updateStatements();
 	
-	public SellerDaoJDBC(Connection conn) {
-		this.conn = conn;
+	private JdbcTemplate jdbc;
+	
+	//As leituras de listas (find, stream, page, search, count), que podem rodar numa rplica
+	private JdbcTemplate reads;
+	
+	public SellerDaoJDBC(JdbcTemplate jdbc, JdbcTemplate reads) {
+		this.jdbc = jdbc;
+		this.reads = reads;
 	}
 	
 	@Override
 	public void insert(Seller obj) {
-		PreparedStatement st = null;
 		try {
-			st = conn.prepareStatement(
-					"INSERT INTO seller "
-					+ "(Name, Email, BirthDate, BaseSalary, DepartmentId) "
-					+ "VALUES "
-					+ "(?, ?, ?, ?, ?)",
-					Statement.RETURN_GENERATED_KEYS);
-			
-			st.setString(1, obj.getName());
-			st.setString(2, obj.getEmail());
-			st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
-			st.setDouble(4, obj.getBaseSalary());
-			st.setInt(5, obj.getDepartment().getId());
-			
-			int rowsAffected = st.executeUpdate();
-			
-			if (rowsAffected > 0) {
-				ResultSet rs = st.getGeneratedKeys();
-				if (rs.next()) {
-					int id = rs.getInt(1);
-					obj.setId(id);
-				}
-				DB.closeResultSet(rs);
-			}
-			else {
-				throw new DbException("Unexpected error! No rows affected!");
-			}
-		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			jdbc.runInTransaction(() -> {
+				obj.setId(jdbc.insertReturningKey(INSERT_SQL, obj.getName(), obj.getEmail(),
+						new java.sql.Date(obj.getBirthDate().getTime()), obj.getBaseSalary(),
+						obj.getDepartment().getId()));
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.INSERTED,
+						Collections.singletonList(obj.getId()));
+			});
 		}
-		finally {
-			DB.closeStatement(st);
+		catch (RuntimeException e) {
+			obj.setId(null);
+			throw e;
 		}
+		obj.markClean();
 	}
 
+	//Grava s as colunas alteradas; um vendedor sem alterao no chega ao banco
 	@Override
 	public void update(Seller obj) {
-		PreparedStatement st = null;
+		int shape = obj.getDirtyColumns();
+		if (shape == 0) {
+			return;
+		}
+		jdbc.runInTransaction(() -> {
+			jdbc.update(UPDATE_SQL[shape], updateParameters(obj, shape));
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.UPDATED,
+					Collections.singletonList(obj.getId()));
+		});
+		obj.markClean();
+	}
+
+	@Override
+	public void deleteById(Integer id) {
+		jdbc.runInTransaction(() -> {
+			jdbc.update("DELETE FROM seller WHERE Id = ?", id);
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.DELETED,
+					Collections.singletonList(id));
+		});
+	}
+
+	@Override
+	public void insertAll(List<Seller> list) {
+		if (list.isEmpty()) {
+			return;
+		}
 		try {
-			st = conn.prepareStatement(
-					"UPDATE seller "
-					+ "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ? "
-					+ "WHERE Id = ?");
-			
-			st.setString(1, obj.getName());
-			st.setString(2, obj.getEmail());
-			st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
-			st.setDouble(4, obj.getBaseSalary());
-			st.setInt(5, obj.getDepartment().getId());
-			st.setInt(6, obj.getId());
-			
-			st.executeUpdate();
+			jdbc.runInTransaction(() -> {
+				jdbc.batchInsert(INSERT_SQL, list, this::setSellerParameters, Seller::setId);
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.INSERTED, ids(list));
+			});
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+		catch (RuntimeException e) {
+			for (Seller obj : list) {
+				obj.setId(null);
+			}
+			throw e;
 		}
-		finally {
-			DB.closeStatement(st);
+		for (Seller obj : list) {
+			obj.markClean();
 		}
 	}
 
+	//Um lote por conjunto de colunas alteradas; vendedores sem alterao ficam de fora
 	@Override
-	public void deleteById(Integer id) {
-		PreparedStatement st = null;
-		try {
-			st = conn.prepareStatement("DELETE FROM seller WHERE Id = ?");
-			
-			st.setInt(1, id);
-			
-			st.executeUpdate();
+	public void updateAll(List<Seller> list) {
+		Map<Integer, List<Seller>> byShape = new LinkedHashMap<>();
+		List<Seller> dirty = new ArrayList<>();
+		for (Seller obj : list) {
+			int shape = obj.getDirtyColumns();
+			if (shape != 0) {
+				byShape.computeIfAbsent(shape, k -> new ArrayList<>()).add(obj);
+				dirty.add(obj);
+			}
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+		if (dirty.isEmpty()) {
+			return;
 		}
-		finally {
-			DB.closeStatement(st);
+		jdbc.runInTransaction(() -> {
+			for (Map.Entry<Integer, List<Seller>> entry : byShape.entrySet()) {
+				int shape = entry.getKey();
+				jdbc.batchUpdate(UPDATE_SQL[shape], entry.getValue(), (st, obj) -> {
+					Object[] params = updateParameters(obj, shape);
+					for (int i = 0; i < params.length; i++) {
+						st.setObject(i + 1, params[i]);
+					}
+				});
+			}
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.UPDATED, ids(dirty));
+		});
+		for (Seller obj : dirty) {
+			obj.markClean();
 		}
 	}
 
 	@Override
-	public Seller findById(Integer id) {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName "
-					+ "FROM seller INNER JOIN department "
-					+ "ON seller.DepartmentId = department.Id "
-					+ "WHERE seller.Id = ?");
-			
-			st.setInt(1, id);
-			rs = st.executeQuery();
-			if (rs.next()) {
-				Department dep = instantiateDepartment(rs);
-				Seller obj = instantiateSeller(rs, dep);
-				return obj;
+	public void deleteByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		List<Integer> list = new ArrayList<>(ids);
+		int chunkSize = jdbc.getChunkSize();
+		jdbc.runInTransaction(() -> {
+			for (int from = 0; from < list.size(); from += chunkSize) {
+				List<Integer> chunk = list.subList(from, Math.min(from + chunkSize, list.size()));
+				jdbc.update("DELETE FROM seller WHERE Id IN (" + DB.placeholders(chunk.size()) + ")", chunk.toArray());
+			}
+			ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.DELETED, list);
+		});
+	}
+
+	//Os ids so lidos com FOR UPDATE na mesma transao, ento o log lista exatamente as linhas movidas
+	@Override
+	public List<Integer> moveToDepartment(Department from, Department to) {
+		return jdbc.inTransaction(() -> {
+			List<Integer> ids = jdbc.query("SELECT Id FROM seller WHERE DepartmentId = ? FOR UPDATE",
+					rs -> rs.getInt(1), from.getId());
+			if (!ids.isEmpty()) {
+				jdbc.update("UPDATE seller SET DepartmentId = ? WHERE DepartmentId = ?", to.getId(), from.getId());
+				ChangeLogDaoJDBC.record(jdbc, ChangeLogDaoJDBC.SELLER, ChangeLogDaoJDBC.UPDATED, ids);
 			}
-			return null;
+			return ids;
+		});
+	}
+
+	private List<Integer> ids(List<Seller> list) {
+		List<Integer> ids = new ArrayList<>(list.size());
+		for (Seller obj : list) {
+			ids.add(obj.getId());
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+		return ids;
+	}
+
+	private static String[] updateStatements() {
+		String[] sql = new String[Seller.ALL_COLUMNS + 1];
+		for (int shape = 1; shape < sql.length; shape++) {
+			List<String> set = new ArrayList<>();
+			for (int i = 0; i < UPDATE_COLUMNS.length; i++) {
+				if ((shape & (1 << i)) != 0) {
+					set.add(UPDATE_COLUMNS[i] + " = ?");
+				}
+			}
+			sql[shape] = "UPDATE seller SET " + String.join(", ", set) + " WHERE Id = ?";
+		}
+		return sql;
+	}
+
+	//As colunas alteradas na ordem de UPDATE_COLUMNS, depois o id
+	private static Object[] updateParameters(Seller obj, int shape) {
+		List<Object> params = new ArrayList<>();
+		if ((shape & Seller.NAME) != 0) {
+			params.add(obj.getName());
 		}
-		finally {
-			DB.closeStatement(st);
-			DB.closeResultSet(rs);
+		if ((shape & Seller.EMAIL) != 0) {
+			params.add(obj.getEmail());
 		}
+		if ((shape & Seller.BIRTH_DATE) != 0) {
+			params.add(new java.sql.Date(obj.getBirthDate().getTime()));
+		}
+		if ((shape & Seller.BASE_SALARY) != 0) {
+			params.add(obj.getBaseSalary());
+		}
+		if ((shape & Seller.DEPARTMENT) != 0) {
+			params.add(obj.getDepartment().getId());
+		}
+		params.add(obj.getId());
+		return params.toArray();
 	}
 
-	private Seller instantiateSeller(ResultSet rs, Department dep) throws SQLException {
-		Seller obj = new Seller();
-		obj.setId(rs.getInt("Id"));
-		obj.setName(rs.getString("Name"));
-		obj.setEmail(rs.getString("Email"));
-		obj.setBaseSalary(rs.getDouble("BaseSalary"));
-		obj.setBirthDate(new java.util.Date(rs.getTimestamp("BirthDate").getTime()));
-		obj.setDepartment(dep);
-		return obj;
+	private void setSellerParameters(PreparedStatement st, Seller obj) throws SQLException {
+		st.setString(1, obj.getName());
+		st.setString(2, obj.getEmail());
+		st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+		st.setDouble(4, obj.getBaseSalary());
+		st.setInt(5, obj.getDepartment().getId());
 	}
 
-	private Department instantiateDepartment(ResultSet rs) throws SQLException {
-		Department dep = new Department();
-		dep.setId(rs.getInt("DepartmentId"));
-		dep.setName(rs.getString("DepName"));
-		return dep;
+	@Override
+	public Seller findById(Integer id) {
+		return reads.queryForObject(FIND_BY_ID_SQL, Mappers.SELLER, id);
 	}
 
 	@Override
 	public List<Seller> findAll() {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName "
-					+ "FROM seller INNER JOIN department "
-					+ "ON seller.DepartmentId = department.Id "
-					+ "ORDER BY Name");
-			
-			rs = st.executeQuery();
-			
-			List<Seller> list = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
-			
-			while (rs.next()) {
-				
-				Department dep = map.get(rs.getInt("DepartmentId"));
-				
-				if (dep == null) {
-					dep = instantiateDepartment(rs);
-					map.put(rs.getInt("DepartmentId"), dep);
-				}
-				
-				Seller obj = instantiateSeller(rs, dep);
-				list.add(obj);
+		return reads.query(SELECT_SQL + "ORDER BY Name", Mappers.SELLER);
+	}
+
+	@Override
+	public List<Seller> findByDepartment(Department department) {
+		return reads.query(SELECT_SQL + "WHERE DepartmentId = ? ORDER BY Name", Mappers.SELLER, department.getId());
+	}
+
+	@Override
+	public Stream<Seller> streamAll() {
+		return reads.queryForStream(SELECT_SQL + "ORDER BY Name", Mappers.SELLER);
+	}
+
+	@Override
+	public Stream<Seller> streamByDepartment(Department department) {
+		return reads.queryForStream(SELECT_SQL + "WHERE DepartmentId = ? ORDER BY Name", Mappers.SELLER,
+				department.getId());
+	}
+
+	@Override
+	public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+		if (afterName == null) {
+			return reads.query(SELECT_SQL + "ORDER BY seller.Name, seller.Id LIMIT ?", Mappers.SELLER, limit);
+		}
+		return reads.query(
+				SELECT_SQL
+				+ "WHERE seller.Name > ? OR (seller.Name = ? AND seller.Id > ?) "
+				+ "ORDER BY seller.Name, seller.Id "
+				+ "LIMIT ?",
+				Mappers.SELLER, afterName, afterName, afterId, limit);
+	}
+
+	@Override
+	public int count() {
+		return reads.queryForObject(COUNT_SQL, rs -> rs.getInt(1));
+	}
+
+	@Override
+	public List<Seller> search(SellerCriteria criteria) {
+		List<Object> params = new ArrayList<>();
+		return reads.query(searchSql(criteria, params), Mappers.SELLER, params.toArray());
+	}
+
+	@Override
+	public int count(SellerCriteria criteria) {
+		List<Object> params = new ArrayList<>();
+		return reads.queryForObject(countSql(criteria, params), rs -> rs.getInt(1), params.toArray());
+	}
+
+	//As leituras da primeira tela da lista de vendedores (contagem, primeira e prxima pgina) e do dilogo de edio
+	public static List<String> warmUpStatements() {
+		SellerCriteria criteria = new SellerCriteria();
+		List<String> sql = new ArrayList<>();
+		sql.add(COUNT_SQL);
+		criteria.setLimit(1);
+		sql.add(searchSql(criteria, new ArrayList<>()));
+		criteria.setAfter("", 0);
+		sql.add(searchSql(criteria, new ArrayList<>()));
+		sql.add(FIND_BY_ID_SQL);
+		return sql;
+	}
+
+	private static String searchSql(SellerCriteria criteria, List<Object> params) {
+		StringBuilder sql = new StringBuilder(SELECT_SQL);
+		appendWhere(sql, params, criteria, true);
+		sql.append("ORDER BY seller.Name, seller.Id ");
+		if (criteria.getLimit() > 0) {
+			sql.append("LIMIT ? ");
+			params.add(criteria.getLimit());
+			if (criteria.getAfterName() == null && criteria.getOffset() > 0) {
+				sql.append("OFFSET ? ");
+				params.add(criteria.getOffset());
 			}
-			return list;
 		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+		return sql.toString();
+	}
+
+	private static String countSql(SellerCriteria criteria, List<Object> params) {
+		StringBuilder sql = new StringBuilder(COUNT_SQL).append(" ");
+		appendWhere(sql, params, criteria, false);
+		return sql.toString();
+	}
+
+	//S predicados que usam ndice (LIKE por prefixo, faixas, IN), para os ndices das colunas servirem
+	private static void appendWhere(StringBuilder sql, List<Object> params, SellerCriteria criteria, boolean keyset) {
+		List<String> where = new ArrayList<>();
+		if (criteria.getNamePrefix() != null) {
+			where.add("seller.Name LIKE ?");
+			params.add(likePrefix(criteria.getNamePrefix()));
+		}
+		if (criteria.getEmailPrefix() != null) {
+			where.add("seller.Email LIKE ?");
+			params.add(likePrefix(criteria.getEmailPrefix()));
+		}
+		if (!criteria.getDepartmentIds().isEmpty()) {
+			where.add("seller.DepartmentId IN (" + DB.placeholders(criteria.getDepartmentIds().size()) + ")");
+			params.addAll(criteria.getDepartmentIds());
 		}
-		finally {
-			DB.closeStatement(st);
-			DB.closeResultSet(rs);
+		if (criteria.getMinBaseSalary() != null) {
+			where.add("seller.BaseSalary >= ?");
+			params.add(criteria.getMinBaseSalary());
+		}
+		if (criteria.getMaxBaseSalary() != null) {
+			where.add("seller.BaseSalary <= ?");
+			params.add(criteria.getMaxBaseSalary());
+		}
+		if (criteria.getMinBirthDate() != null) {
+			where.add("seller.BirthDate >= ?");
+			params.add(new java.sql.Timestamp(criteria.getMinBirthDate().getTime()));
+		}
+		if (criteria.getMaxBirthDate() != null) {
+			where.add("seller.BirthDate <= ?");
+			params.add(new java.sql.Timestamp(criteria.getMaxBirthDate().getTime()));
+		}
+		if (keyset && criteria.getAfterName() != null) {
+			where.add("(seller.Name > ? OR (seller.Name = ? AND seller.Id > ?))");
+			params.add(criteria.getAfterName());
+			params.add(criteria.getAfterName());
+			params.add(criteria.getAfterId());
+		}
+		if (!where.isEmpty()) {
+			sql.append("WHERE ").append(String.join(" AND ", where)).append(" ");
 		}
 	}
 
+	//Escapa os curingas do LIKE para o prefixo ser comparado literalmente
+	private static String likePrefix(String prefix) {
+		return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+	}
+
 	@Override
-	public List<Seller> findByDepartment(Department department) {
-		PreparedStatement st = null;
-		ResultSet rs = null;
-		try {
-			st = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName "
-					+ "FROM seller INNER JOIN department "
-					+ "ON seller.DepartmentId = department.Id "
-					+ "WHERE DepartmentId = ? "
-					+ "ORDER BY Name");
-			
-			st.setInt(1, department.getId());
-			
-			rs = st.executeQuery();
-			
-			List<Seller> list = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
-			
-			while (rs.next()) {
-				
-				Department dep = map.get(rs.getInt("DepartmentId"));
-				
-				if (dep == null) {
-					dep = instantiateDepartment(rs);
-					map.put(rs.getInt("DepartmentId"), dep);
+	public ChangeSet<Seller> findChangedSince(ChangeCursor cursor) {
+		ChangeLogDaoJDBC.Changes changes = ChangeLogDaoJDBC.readSince(jdbc, ChangeLogDaoJDBC.SELLER, cursor,
+				jdbc.getChunkSize());
+		
+		List<Seller> inserted = new ArrayList<>();
+		List<Seller> updated = new ArrayList<>();
+		List<Integer> ids = changes.idsToFetch();
+		if (!ids.isEmpty()) {
+			List<Seller> rows = jdbc.query(SELECT_SQL + "WHERE seller.Id IN (" + DB.placeholders(ids.size()) + ")",
+					Mappers.SELLER, ids.toArray());
+			for (Seller obj : rows) {
+				if (changes.isInsert(obj.getId())) {
+					inserted.add(obj);
+				}
+				else {
+					updated.add(obj);
 				}
-				
-				Seller obj = instantiateSeller(rs, dep);
-				list.add(obj);
 			}
-			return list;
-		}
-		catch (SQLException e) {
-			throw new DbException(e.getMessage());
 		}
-		finally {
-			DB.closeStatement(st);
-			DB.closeResultSet(rs);
+		
+		List<Seller> deleted = new ArrayList<>();
+		for (Integer id : changes.deletedIds()) {
+			Seller obj = new Seller();
+			obj.setId(id);
+			deleted.add(obj);
 		}
+		return new ChangeSet<>(inserted, updated, deleted, changes.cursor);
 	}
 }
@@ -1,6 +1,7 @@
 package model.entities;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 public class Department implements Serializable {
 
@@ -9,6 +10,10 @@ public class Department implements Serializable {
 	private Integer id;
 	private String name;
 	
+	//Nome lido do banco ou gravado nele por ltimo
+	private transient String snapshot;
+	private transient boolean tracked;
+	
 	public Department() {
 	}
 
@@ -33,6 +38,28 @@ public class Department implements Serializable {
 		this.name = name;
 	}
 
+	//O estado atual  o que est no banco
+	public void markClean() {
+		snapshot = name;
+		tracked = true;
+	}
+
+	//Esquece o snapshot, para o prximo update gravar a linha
+	public void markDirty() {
+		snapshot = null;
+		tracked = false;
+	}
+
+	//Continua comparando com o snapshot de outra instncia do mesmo departamento, por exemplo uma remontada pelo formulrio
+	public void trackChangesFrom(Department other) {
+		snapshot = other.snapshot;
+		tracked = other.tracked;
+	}
+
+	public boolean isDirty() {
+		return !tracked || !Objects.equals(name, snapshot);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
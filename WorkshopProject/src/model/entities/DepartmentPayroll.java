@@ -0,0 +1,122 @@
+package model.entities;
+
+import java.io.Serializable;
+
+/**
+ * One row of the payroll report: headcount and BaseSalary figures of a
+ * department. Average, minimum and maximum are null when it has no sellers.
+ */
+public class DepartmentPayroll implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Integer departmentId;
+	private String departmentName;
+	private int headcount;
+	private double totalSalary;
+	private Double averageSalary;
+	private Double minSalary;
+	private Double maxSalary;
+
+	public DepartmentPayroll() {
+	}
+
+	public DepartmentPayroll(Integer departmentId, String departmentName, int headcount, double totalSalary,
+			Double averageSalary, Double minSalary, Double maxSalary) {
+		this.departmentId = departmentId;
+		this.departmentName = departmentName;
+		this.headcount = headcount;
+		this.totalSalary = totalSalary;
+		this.averageSalary = averageSalary;
+		this.minSalary = minSalary;
+		this.maxSalary = maxSalary;
+	}
+
+	public Integer getDepartmentId() {
+		return departmentId;
+	}
+
+	public void setDepartmentId(Integer departmentId) {
+		this.departmentId = departmentId;
+	}
+
+	public String getDepartmentName() {
+		return departmentName;
+	}
+
+	public void setDepartmentName(String departmentName) {
+		this.departmentName = departmentName;
+	}
+
+	public int getHeadcount() {
+		return headcount;
+	}
+
+	public void setHeadcount(int headcount) {
+		this.headcount = headcount;
+	}
+
+	public double getTotalSalary() {
+		return totalSalary;
+	}
+
+	public void setTotalSalary(double totalSalary) {
+		this.totalSalary = totalSalary;
+	}
+
+	public Double getAverageSalary() {
+		return averageSalary;
+	}
+
+	public void setAverageSalary(Double averageSalary) {
+		this.averageSalary = averageSalary;
+	}
+
+	public Double getMinSalary() {
+		return minSalary;
+	}
+
+	public void setMinSalary(Double minSalary) {
+		this.minSalary = minSalary;
+	}
+
+	public Double getMaxSalary() {
+		return maxSalary;
+	}
+
+	public void setMaxSalary(Double maxSalary) {
+		this.maxSalary = maxSalary;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((departmentId == null) ? 0 : departmentId.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DepartmentPayroll other = (DepartmentPayroll) obj;
+		if (departmentId == null) {
+			if (other.departmentId != null)
+				return false;
+		} else if (!departmentId.equals(other.departmentId))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "DepartmentPayroll [departmentId=" + departmentId + ", departmentName=" + departmentName
+				+ ", headcount=" + headcount + ", totalSalary=" + totalSalary + ", averageSalary=" + averageSalary
+				+ ", minSalary=" + minSalary + ", maxSalary=" + maxSalary + "]";
+	}
+}
@@ -2,11 +2,20 @@ package model.entities;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.Objects;
 
 public class Seller implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	//Bits das colunas em getDirtyColumns()
+	public static final int NAME = 1;
+	public static final int EMAIL = 1 << 1;
+	public static final int BIRTH_DATE = 1 << 2;
+	public static final int BASE_SALARY = 1 << 3;
+	public static final int DEPARTMENT = 1 << 4;
+	public static final int ALL_COLUMNS = NAME | EMAIL | BIRTH_DATE | BASE_SALARY | DEPARTMENT;
+
 	private Integer id;
 	private String name;
 	private String email;
@@ -15,6 +24,9 @@ public class Seller implements Serializable {
 	
 	private Department department;
 	
+	//Valores das colunas lidos do banco ou gravados nele por ltimo; null quando no se sabe
+	private transient Object[] snapshot;
+	
 	public Seller() {
 	}
 
@@ -75,6 +87,46 @@ public class Seller implements Serializable {
 		this.department = department;
 	}
 
+	//O estado atual  o que est no banco
+	public void markClean() {
+		snapshot = columnValues();
+	}
+
+	//Esquece o snapshot, para o prximo update gravar todas as colunas
+	public void markDirty() {
+		snapshot = null;
+	}
+
+	//Continua comparando com o snapshot de outra instncia do mesmo vendedor, por exemplo uma remontada pelo formulrio
+	public void trackChangesFrom(Seller other) {
+		snapshot = other.snapshot;
+	}
+
+	//Colunas diferentes do snapshot; todas, quando no h snapshot
+	public int getDirtyColumns() {
+		if (snapshot == null) {
+			return ALL_COLUMNS;
+		}
+		Object[] current = columnValues();
+		int dirty = 0;
+		for (int i = 0; i < current.length; i++) {
+			if (!Objects.equals(current[i], snapshot[i])) {
+				dirty |= 1 << i;
+			}
+		}
+		return dirty;
+	}
+
+	public boolean isDirty() {
+		return getDirtyColumns() != 0;
+	}
+
+	//Na ordem dos bits das colunas; o departamento pelo id, a data de nascimento pelo valor
+	private Object[] columnValues() {
+		return new Object[] { name, email, birthDate == null ? null : birthDate.getTime(), baseSalary,
+				department == null ? null : department.getId() };
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
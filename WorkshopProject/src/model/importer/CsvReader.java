@@ -0,0 +1,126 @@
+package model.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming CSV parser (RFC 4180 quoting, quoted fields may span
+ * lines). Only the current record is held in memory.
+ */
+public class CsvReader implements Closeable {
+
+	private final Reader in;
+	private final char separator;
+
+	private final StringBuilder raw = new StringBuilder();
+	private int pushedBack = -2;
+	private long recordNumber;
+
+	public CsvReader(Reader in, char separator) {
+		this.in = in;
+		this.separator = separator;
+	}
+
+	public List<String> readRecord() throws IOException {
+		raw.setLength(0);
+		int c = read();
+		if (c == -1) {
+			return null;
+		}
+
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+				}
+				if (c == '"') {
+					int next = read();
+					if (next == '"') {
+						field.append('"');
+					}
+					else {
+						quoted = false;
+						c = next;
+						continue;
+					}
+				}
+				else {
+					field.append((char) c);
+				}
+			}
+			else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			}
+			else if (c == separator) {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r') {
+					int next = read();
+					if (next != '\n') {
+						unread(next);
+					}
+				}
+				fields.add(field.toString());
+				recordNumber++;
+				trimLineEnd();
+				return fields;
+			}
+			else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	public String getRawRecord() {
+		return raw.toString();
+	}
+
+	public long getRecordNumber() {
+		return recordNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private int read() throws IOException {
+		int c;
+		if (pushedBack != -2) {
+			c = pushedBack;
+			pushedBack = -2;
+		}
+		else {
+			c = in.read();
+		}
+		if (c != -1) {
+			raw.append((char) c);
+		}
+		return c;
+	}
+
+	private void unread(int c) {
+		pushedBack = c;
+		if (c != -1) {
+			raw.setLength(raw.length() - 1);
+		}
+	}
+
+	private void trimLineEnd() {
+		int len = raw.length();
+		while (len > 0 && (raw.charAt(len - 1) == '\n' || raw.charAt(len - 1) == '\r')) {
+			len--;
+		}
+		raw.setLength(len);
+	}
+}
@@ -0,0 +1,60 @@
+package model.importer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Resolves department names from the spreadsheet to departments. All
+ * departments are read once; a name that does not exist yet gets one new
+ * Department without id, reused for every following row. It is inserted
+ * together with the first batch of sellers that commits with it.
+ */
+public class DepartmentResolver {
+
+	private final DepartmentDao dao;
+
+	private Map<String, Department> byName;
+	private final List<Department> created = new ArrayList<>();
+
+	public DepartmentResolver(DepartmentDao dao) {
+		this.dao = dao;
+	}
+
+	public Department resolve(String name) {
+		if (byName == null) {
+			byName = new HashMap<>();
+			for (Department dep : dao.findAll()) {
+				byName.put(key(dep.getName()), dep);
+			}
+		}
+		String key = key(name);
+		Department dep = byName.get(key);
+		if (dep == null) {
+			dep = new Department(null, name.trim());
+			byName.put(key, dep);
+			created.add(dep);
+		}
+		return dep;
+	}
+
+	//S os que chegaram ao banco: os de lotes que falharam continuam sem id
+	public int getCreatedCount() {
+		int count = 0;
+		for (Department dep : created) {
+			if (dep.getId() != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static String key(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,60 @@
+package model.importer;
+
+public class ImportProgress {
+
+	private final long rowsRead;
+	private final long imported;
+	private final long rejected;
+	private final long bytesRead;
+	private final long totalBytes;
+	private final long elapsedMillis;
+	private final boolean finished;
+
+	public ImportProgress(long rowsRead, long imported, long rejected, long bytesRead, long totalBytes,
+			long elapsedMillis, boolean finished) {
+		this.rowsRead = rowsRead;
+		this.imported = imported;
+		this.rejected = rejected;
+		this.bytesRead = bytesRead;
+		this.totalBytes = totalBytes;
+		this.elapsedMillis = elapsedMillis;
+		this.finished = finished;
+	}
+
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public double getRowsPerSecond() {
+		return elapsedMillis == 0 ? 0.0 : rowsRead * 1000.0 / elapsedMillis;
+	}
+
+	public double getFraction() {
+		if (finished) {
+			return 1.0;
+		}
+		return totalBytes <= 0 ? -1.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+	}
+
+	@Override
+	public String toString() {
+		return "ImportProgress [rowsRead=" + rowsRead + ", imported=" + imported + ", rejected=" + rejected
+				+ ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) + ", finished=" + finished + "]";
+	}
+}
@@ -0,0 +1,388 @@
+package model.importer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import db.DB;
+import db.DbException;
+import model.dao.DaoFactory;
+import model.entities.Seller;
+import model.exception.ValidationException;
+import model.services.SellerValidator;
+import model.services.ServiceExecutor;
+import model.services.UnitOfWork;
+
+/**
+ * Imports sellers from a CSV file with the columns Nome, Email, Nascimento,
+ * Salario and Departamento (English names are accepted too). The file is read
+ * one record at a time and valid rows are inserted in batches; rejected rows
+ * are copied to a reject file together with the reason. Departments missing
+ * from the table are inserted in the transaction of the first batch that
+ * uses them, so a batch that fails leaves none behind.
+ */
+public class SellerCsvImporter {
+
+	//STRICT: 31/02/1990  rejeitada em vez de virar 28/02/1990
+	private static final DateTimeFormatter[] DATE_FORMATS = {
+			DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT),
+			DateTimeFormatter.ISO_LOCAL_DATE };
+
+	private DepartmentResolver departments = new DepartmentResolver(DaoFactory.createDepartmentDao());
+
+	private int batchSize = DB.getIntProperty("batch.chunkSize", 500);
+
+	private Charset charset = StandardCharsets.UTF_8;
+
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	public CompletableFuture<ImportProgress> importFileAsync(File input, File rejectFile,
+			Consumer<ImportProgress> listener) {
+		return ServiceExecutor.supplyAsync(() -> {
+			try {
+				return importFile(input, rejectFile, listener);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	public ImportProgress importFile(File input, File rejectFile, Consumer<ImportProgress> listener)
+			throws IOException {
+		long start = System.currentTimeMillis();
+		long totalBytes = input.length();
+		CountingInputStream counter = new CountingInputStream(new FileInputStream(input));
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(counter, charset));
+				RejectWriter rejects = new RejectWriter(rejectFile, charset)) {
+
+			char separator = detectSeparator(reader);
+			CsvReader csv = new CsvReader(reader, separator);
+			List<String> header = csv.readRecord();
+			if (header == null) {
+				throw new ValidationException("Arquivo vazio");
+			}
+			Columns columns = new Columns(header);
+			rejects.setHeader(csv.getRawRecord(), separator);
+
+			List<Seller> batch = new ArrayList<>(batchSize);
+			List<String> batchRaw = new ArrayList<>(batchSize);
+			long rowsRead = 0;
+			long imported = 0;
+
+			List<String> record;
+			while ((record = csv.readRecord()) != null) {
+				if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+					continue;
+				}
+				rowsRead++;
+				try {
+					batch.add(toSeller(record, columns));
+					batchRaw.add(csv.getRawRecord());
+				}
+				catch (ValidationException e) {
+					rejects.reject(csv.getRawRecord(), describe(e));
+				}
+
+				if (batch.size() >= batchSize) {
+					imported += flush(batch, batchRaw, rejects);
+					report(listener, rowsRead, imported, rejects.getCount(), counter.getCount(), totalBytes, start,
+							false);
+				}
+			}
+			imported += flush(batch, batchRaw, rejects);
+
+			ImportProgress result = new ImportProgress(rowsRead, imported, rejects.getCount(), counter.getCount(),
+					totalBytes, System.currentTimeMillis() - start, true);
+			if (listener != null) {
+				listener.accept(result);
+			}
+			return result;
+		}
+	}
+
+	public int getCreatedDepartmentCount() {
+		return departments.getCreatedCount();
+	}
+
+	private Seller toSeller(List<String> record, Columns columns) {
+		ValidationException exception = new ValidationException("Erro de validao");
+		Seller obj = new Seller();
+		obj.setName(columns.get(record, columns.name));
+		obj.setEmail(columns.get(record, columns.email));
+		obj.setBirthDate(parseDate(columns.get(record, columns.birthDate), exception));
+		obj.setBaseSalary(parseSalary(columns.get(record, columns.baseSalary), exception));
+
+		try {
+			SellerValidator.validate(obj);
+		}
+		catch (ValidationException e) {
+			//Um valor que no pde ser lido fica com o erro de leitura, no com o de campo vazio
+			for (String field : e.getErrors().keySet()) {
+				exception.getErrors().putIfAbsent(field, e.getErrors().get(field));
+			}
+		}
+		String department = columns.get(record, columns.department);
+		if (department == null || department.trim().isEmpty()) {
+			exception.addError("departamento", "  O campo no pode ser vazio !!");
+		}
+		if (exception.getErrors().size() > 0) {
+			throw exception;
+		}
+		obj.setDepartment(departments.resolve(department));
+		return obj;
+	}
+
+	private int flush(List<Seller> batch, List<String> batchRaw, RejectWriter rejects) throws IOException {
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		int imported = 0;
+		try {
+			commit(batch);
+			imported = batch.size();
+		}
+		catch (DbException e) {
+			//O lote inteiro voltou, com os departamentos novos; grava linha a linha para separar as linhas com problema
+			for (int i = 0; i < batch.size(); i++) {
+				try {
+					commit(Collections.singletonList(batch.get(i)));
+					imported++;
+				}
+				catch (DbException rowError) {
+					rejects.reject(batchRaw.get(i), rowError.getMessage());
+				}
+			}
+		}
+		batch.clear();
+		batchRaw.clear();
+		return imported;
+	}
+
+	//Os departamentos ainda sem id entram na mesma transao dos vendedores; se ela voltar, voltam a no ter id
+	private void commit(List<Seller> sellers) {
+		UnitOfWork unit = new UnitOfWork();
+		for (Seller obj : sellers) {
+			if (obj.getDepartment().getId() == null) {
+				unit.registerNew(obj.getDepartment());
+			}
+			unit.registerNew(obj);
+		}
+		unit.commit();
+	}
+
+	private void report(Consumer<ImportProgress> listener, long rowsRead, long imported, long rejected,
+			long bytesRead, long totalBytes, long start, boolean finished) {
+		if (listener != null) {
+			listener.accept(new ImportProgress(rowsRead, imported, rejected, bytesRead, totalBytes,
+					System.currentTimeMillis() - start, finished));
+		}
+	}
+
+	private static String describe(ValidationException e) {
+		StringBuilder sb = new StringBuilder();
+		for (String field : e.getErrors().keySet()) {
+			if (sb.length() > 0) {
+				sb.append("; ");
+			}
+			sb.append(field).append(':').append(e.getErrors().get(field).trim());
+		}
+		return sb.length() == 0 ? e.getMessage() : sb.toString();
+	}
+
+	//Vazio fica null para o SellerValidator; um valor que no  data vira erro do campo
+	private static Date parseDate(String text, ValidationException errors) {
+		if (text == null || text.trim().isEmpty()) {
+			return null;
+		}
+		for (DateTimeFormatter format : DATE_FORMATS) {
+			try {
+				LocalDate date = LocalDate.parse(text.trim(), format);
+				return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+			}
+			catch (DateTimeParseException e) {
+				//Tenta o prximo formato
+			}
+		}
+		errors.addError("aniversario", "  Data invlida (dd/mm/aaaa): " + text.trim());
+		return null;
+	}
+
+	private static Double parseSalary(String text, ValidationException errors) {
+		if (text == null || text.trim().isEmpty()) {
+			return null;
+		}
+		String value = text.trim();
+		if (value.indexOf(',') >= 0) {
+			//Formato brasileiro: 1.234,56
+			value = value.replace(".", "").replace(',', '.');
+		}
+		try {
+			double salary = Double.parseDouble(value);
+			if (!Double.isNaN(salary) && !Double.isInfinite(salary)) {
+				return salary;
+			}
+		}
+		catch (NumberFormatException e) {
+			//Cai no erro abaixo
+		}
+		errors.addError("salario", "  Valor invlido: " + text.trim());
+		return null;
+	}
+
+	private static char detectSeparator(BufferedReader reader) throws IOException {
+		reader.mark(8192);
+		String firstLine = reader.readLine();
+		reader.reset();
+		if (firstLine != null && firstLine.startsWith("\uFEFF")) {
+			reader.skip(1);
+		}
+		if (firstLine != null && firstLine.indexOf(';') >= 0 && firstLine.indexOf(',') < 0) {
+			return ';';
+		}
+		return ',';
+	}
+
+	private static class Columns {
+
+		private int name = -1;
+		private int email = -1;
+		private int birthDate = -1;
+		private int baseSalary = -1;
+		private int department = -1;
+
+		Columns(List<String> header) {
+			for (int i = 0; i < header.size(); i++) {
+				String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+				if (column.equals("nome") || column.equals("name")) {
+					name = i;
+				}
+				else if (column.equals("email")) {
+					email = i;
+				}
+				else if (column.equals("nascimento") || column.equals("birthdate")) {
+					birthDate = i;
+				}
+				else if (column.equals("salario") || column.equals("salrio") || column.equals("basesalary")) {
+					baseSalary = i;
+				}
+				else if (column.equals("departamento") || column.equals("department")) {
+					department = i;
+				}
+			}
+			if (name < 0 || email < 0 || birthDate < 0 || baseSalary < 0 || department < 0) {
+				throw new ValidationException(
+						"Cabealho invlido: esperado Nome, Email, Nascimento, Salario, Departamento");
+			}
+		}
+
+		String get(List<String> record, int index) {
+			return index < record.size() ? record.get(index) : null;
+		}
+	}
+
+	private static class RejectWriter implements AutoCloseable {
+
+		private final File file;
+		private final Charset charset;
+		private Writer out;
+		private String header;
+		private char separator;
+		private long count;
+
+		RejectWriter(File file, Charset charset) {
+			this.file = file;
+			this.charset = charset;
+		}
+
+		void setHeader(String header, char separator) {
+			this.header = header;
+			this.separator = separator;
+		}
+
+		//O arquivo s  criado se alguma linha for rejeitada
+		void reject(String rawRecord, String reason) throws IOException {
+			if (out == null) {
+				out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset));
+				out.write(header + separator + "Erro\n");
+			}
+			out.write(rawRecord + separator + '"' + reason.replace("\"", "\"\"") + "\"\n");
+			count++;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private volatile long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
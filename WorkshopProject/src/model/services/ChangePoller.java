@@ -0,0 +1,109 @@
+package model.services;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import model.dao.ChangeCursor;
+import model.dao.ChangeLogDao;
+import model.dao.ChangeSet;
+import model.dao.DaoFactory;
+
+/**
+ * Polls the change_log in the background and hands every non-empty batch of
+ * changes to a listener. The listener runs on the poller thread. The same
+ * thread deletes the log rows older than sync.retentionHours once every
+ * sync.pruneIntervalMin minutes, while any poller has been started.
+ */
+public class ChangePoller<T> {
+
+	private static final Logger LOG = Logger.getLogger(ChangePoller.class.getName());
+
+	//Uma thread para todas as telas abertas
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "change-poller");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static boolean pruning;
+
+	private final Function<ChangeCursor, ChangeSet<T>> source;
+	private final Consumer<ChangeSet<T>> listener;
+	private final long intervalMs;
+
+	private ChangeLogDao changeLogDao = DaoFactory.createChangeLogDao();
+
+	private volatile ChangeCursor cursor;
+	private ScheduledFuture<?> task;
+
+	public ChangePoller(Function<ChangeCursor, ChangeSet<T>> source, Consumer<ChangeSet<T>> listener) {
+		this.source = source;
+		this.listener = listener;
+		this.intervalMs = DB.getIntProperty("sync.pollIntervalMs", 3000);
+	}
+
+	//A primeira execuo s marca a posio atual do log
+	public synchronized void start() {
+		if(task == null) {
+			task = scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMs, TimeUnit.MILLISECONDS);
+		}
+		schedulePruning();
+	}
+
+	public synchronized void stop() {
+		if(task != null) {
+			task.cancel(false);
+			task = null;
+		}
+	}
+
+	public ChangeCursor getCursor() {
+		return cursor;
+	}
+
+	//Sem limpeza o change_log cresceria a cada escrita; retentionHours=0 desliga
+	private static synchronized void schedulePruning() {
+		int retentionHours = DB.getIntProperty("sync.retentionHours", 168);
+		if(pruning || retentionHours <= 0) {
+			return;
+		}
+		pruning = true;
+		long intervalMin = DB.getIntProperty("sync.pruneIntervalMin", 60);
+		ChangeLogDao dao = DaoFactory.createChangeLogDao();
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				int deleted = dao.deleteOlderThan(retentionHours);
+				LOG.fine("Deleted " + deleted + " change_log rows older than " + retentionHours + " h");
+			}
+			catch(RuntimeException e) {
+				LOG.log(Level.WARNING, "Change log pruning failed: " + e.getMessage(), e);
+			}
+		}, intervalMin, intervalMin, TimeUnit.MINUTES);
+	}
+
+	private void poll() {
+		try {
+			if(cursor == null) {
+				//As listas podem vir da rplica: comea pela posio do log que ela j tem
+				cursor = changeLogDao.currentReadCursor();
+				return;
+			}
+			ChangeSet<T> changes = source.apply(cursor);
+			cursor = changes.getCursor();
+			if(!changes.isEmpty()) {
+				listener.accept(changes);
+			}
+		}
+		catch(RuntimeException e) {
+			//Uma exceo cancelaria o agendamento; tenta de novo no prximo ciclo
+			LOG.log(Level.WARNING, "Change poll failed: " + e.getMessage(), e);
+		}
+	}
+}
@@ -1,31 +1,96 @@
 package model.services;
 
-import java.util.ArrayList;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import model.dao.ChangeCursor;
+import model.dao.ChangeSet;
 import model.dao.DaoFactory;
 import model.dao.DepartmentDao;
 import model.entities.Department;
 
 public class DepartmentService {
 	
+	private static DepartmentService instance;
+	
 	private DepartmentDao dao = DaoFactory.createDepartmentDao();
 	
+	public static synchronized DepartmentService getInstance() {
+		if(instance == null) {
+			instance = new DepartmentService();
+		}
+		return instance;
+	}
+	
 	public List<Department> findAll(){
 		return dao.findAll();
 	}
 	
+	public ChangeSet<Department> findChangedSince(ChangeCursor cursor) {
+		return dao.findChangedSince(cursor);
+	}
+	
 	public void saveOrUpdate(Department obj) {
-		if(obj.getId() == null) {
-			dao.insert(obj);
+		UnitOfWork uow = new UnitOfWork();
+		uow.registerDirty(obj);
+		uow.commit();
+	}
+	
+	public void remove(Department obj) {
+		UnitOfWork uow = new UnitOfWork();
+		uow.registerRemoved(obj);
+		uow.commit();
+	}
+	
+	public void saveOrUpdateAll(List<Department> list) {
+		UnitOfWork uow = new UnitOfWork();
+		for(Department obj : list) {
+			uow.registerDirty(obj);
 		}
-		else {
-			dao.update(obj);
+		uow.commit();
+	}
+	
+	public void removeAll(Collection<Department> list) {
+		UnitOfWork uow = new UnitOfWork();
+		for(Department obj : list) {
+			uow.registerRemoved(obj);
 		}
+		uow.commit();
 	}
 	
-	public void remove(Department obj) {
-		dao.deleteById(obj.getId());
+	//Passa os vendedores para "target" e remove o departamento na mesma transao, no banco principal
+	//(ler a lista antes na rplica, fora da transao, deixaria de fora quem entrou no departamento depois)
+	public void removeAndReassign(Department obj, Department target) {
+		UnitOfWork uow = new UnitOfWork();
+		uow.registerSellersMoved(obj, target);
+		uow.registerRemoved(obj);
+		uow.commit();
+	}
+	
+	public CompletableFuture<List<Department>> findAllAsync(){
+		return ServiceExecutor.supplyAsync(this::findAll);
+	}
+	
+	public CompletableFuture<Void> saveOrUpdateAsync(Department obj) {
+		return ServiceExecutor.runAsync(() -> saveOrUpdate(obj));
+	}
+	
+	public CompletableFuture<Void> removeAsync(Department obj) {
+		return ServiceExecutor.runAsync(() -> remove(obj));
+	}
+	
+	public CompletableFuture<Void> saveOrUpdateAllAsync(List<Department> list) {
+		return ServiceExecutor.runAsync(() -> saveOrUpdateAll(list));
+	}
+	
+	public CompletableFuture<Void> removeAllAsync(Collection<Department> list) {
+		return ServiceExecutor.runAsync(() -> removeAll(list));
+	}
+	
+	public CompletableFuture<Void> removeAndReassignAsync(Department obj, Department target) {
+		return ServiceExecutor.runAsync(() -> removeAndReassign(obj, target));
 	}
 	
 }
@@ -0,0 +1,140 @@
+package model.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Bounded LRU cache with a time-to-live that doubles as an identity map: while
+ * an entity is cached, every load of the same id is merged into the one cached
+ * instance instead of handing out a new object. Cached instances may be bound
+ * to the screens, so copying fresh state into them runs on the state executor
+ * (the JavaFX thread in the application, inline by default).
+ */
+public class EntityCache<K, V> {
+
+	private final int maxSize;
+	private final long ttlMs;
+	private final BiConsumer<V, V> copier;
+
+	private static volatile Executor stateExecutor = Runnable::run;
+
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public EntityCache(int maxSize, long ttlMs, BiConsumer<V, V> copier) {
+		this.maxSize = maxSize;
+		this.ttlMs = ttlMs;
+		this.copier = copier;
+	}
+
+	//Vale para todos os caches; as tarefas tm de rodar na ordem em que chegam, para um merge ser aplicado antes
+	//de qualquer resultado entregue depois ao mesmo executor
+	public static void setStateExecutor(Executor executor) {
+		stateExecutor = executor;
+	}
+
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null || isExpired(entry)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	//Devolve a instncia j conhecida para o id, atualizada com os dados de fresh
+	public synchronized V merge(K key, V fresh) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			entries.put(key, new Entry<>(fresh));
+			evictOverflow();
+			return fresh;
+		}
+		if (entry.value != fresh) {
+			V cached = entry.value;
+			stateExecutor.execute(() -> copier.accept(fresh, cached));
+		}
+		entry.loadedAt = System.currentTimeMillis();
+		return entry.value;
+	}
+
+	//Como merge, mas sem copiar fresh para a instncia j conhecida, quando ela tem estado mais novo que o do banco
+	public synchronized V putIfAbsent(K key, V fresh) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			entries.put(key, new Entry<>(fresh));
+			evictOverflow();
+			return fresh;
+		}
+		return entry.value;
+	}
+
+	//Altera no lugar a instncia j conhecida, pelo mesmo executor do merge; nada se o id no estiver no cache
+	public synchronized void update(K key, Consumer<V> change) {
+		Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			V cached = entry.value;
+			stateExecutor.execute(() -> change.accept(cached));
+		}
+	}
+
+	public synchronized void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	private boolean isExpired(Entry<V> entry) {
+		return ttlMs > 0 && System.currentTimeMillis() - entry.loadedAt > ttlMs;
+	}
+
+	private void evictOverflow() {
+		Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+		while (entries.size() > maxSize && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+		private long loadedAt = System.currentTimeMillis();
+
+		Entry(V value) {
+			this.value = value;
+		}
+	}
+}
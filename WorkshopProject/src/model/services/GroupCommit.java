@@ -0,0 +1,156 @@
+package model.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import model.dao.DaoFactory;
+
+/**
+ * Commits the units of work that arrive within uow.groupCommitWindowMs of
+ * each other in one transaction, so the server syncs its log once for all of
+ * them. Each caller waits for the shared commit. When the shared transaction
+ * fails, every unit is retried in a transaction of its own, so one bad unit
+ * only fails its own caller. Whatever a group throws, its callers are
+ * released: the units not completed fail with the same error, and the
+ * flusher goes on with the next group.
+ */
+class GroupCommit {
+
+	private static final Logger LOG = Logger.getLogger(GroupCommit.class.getName());
+
+	private static final long WINDOW_MS = DB.getIntProperty("uow.groupCommitWindowMs", 5);
+	private static final int MAX_UNITS = DB.getIntProperty("uow.groupCommitMaxUnits", 50);
+
+	private static final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+	private static Thread flusher;
+
+	//Bloqueia at o commit do grupo em que a unidade entrou
+	static void commit(UnitOfWork unit) {
+		Pending pending = new Pending(unit);
+		queue.add(pending);
+		startFlusher();
+		try {
+			pending.done.join();
+		}
+		catch(CompletionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+		}
+	}
+
+	private static synchronized void startFlusher() {
+		if(flusher == null || !flusher.isAlive()) {
+			flusher = new Thread(GroupCommit::run, "group-commit");
+			flusher.setDaemon(true);
+			flusher.start();
+		}
+	}
+
+	private static synchronized void flusherStopped() {
+		if(flusher == Thread.currentThread()) {
+			flusher = null;
+		}
+	}
+
+	private static void run() {
+		while(true) {
+			List<Pending> group = new ArrayList<>();
+			try {
+				group.add(queue.take());
+				//Junta o que chegar dentro da janela, contada a partir da primeira unidade
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WINDOW_MS);
+				while(group.size() < MAX_UNITS) {
+					Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if(next == null) {
+						break;
+					}
+					group.add(next);
+				}
+			}
+			catch(InterruptedException e) {
+				//Ningum interrompe esta thread; se acontecer, grava o que j est na fila e a prxima unidade cria outra
+				flusherStopped();
+				queue.drainTo(group);
+				flushReleasingCallers(group);
+				return;
+			}
+			flushReleasingCallers(group);
+		}
+	}
+
+	//Um Error ou uma exceo em afterCommit no pode deixar quem espera preso no join()
+	private static void flushReleasingCallers(List<Pending> group) {
+		try {
+			flush(group);
+		}
+		catch(Throwable e) {
+			LOG.log(Level.SEVERE, "Group commit failed: " + e.getMessage(), e);
+			for(Pending pending : group) {
+				pending.done.completeExceptionally(e);
+			}
+		}
+	}
+
+	private static void flush(List<Pending> group) {
+		if(group.size() > 1) {
+			boolean committed = false;
+			try {
+				DaoFactory.runInTransaction(() -> {
+					for(Pending pending : group) {
+						pending.unit.flush();
+					}
+				});
+				committed = true;
+			}
+			catch(RuntimeException | Error e) {
+				for(Pending pending : group) {
+					pending.unit.afterRollback();
+				}
+			}
+			if(committed) {
+				//J gravado: uma falha aqui  s da unidade, sem repetir o commit das outras
+				for(Pending pending : group) {
+					try {
+						pending.unit.afterCommit();
+						pending.done.complete(null);
+					}
+					catch(RuntimeException e) {
+						pending.done.completeExceptionally(e);
+					}
+				}
+				return;
+			}
+		}
+		for(Pending pending : group) {
+			try {
+				pending.unit.commitAlone();
+				pending.done.complete(null);
+			}
+			catch(RuntimeException | Error e) {
+				pending.done.completeExceptionally(e);
+			}
+		}
+	}
+
+	private static class Pending {
+
+		final UnitOfWork unit;
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		Pending(UnitOfWork unit) {
+			this.unit = unit;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package model.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.dao.ChangeCursor;
+import model.dao.ChangeLogDao;
+import model.dao.DaoFactory;
+import model.dao.PayrollReport;
+import model.dao.ReportDao;
+
+public class ReportService {
+
+	//Toda escrita de vendedor ou departamento grava no change_log; enquanto no aparece linha nova depois
+	//do cursor o relatrio vale, mesmo que ela tenha id menor que outras j vistas
+	private static volatile PayrollReport cachedPayroll;
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private static ReportService instance;
+
+	private ReportDao dao = DaoFactory.createReportDao();
+
+	private ChangeLogDao changeLogDao = DaoFactory.createChangeLogDao();
+
+	public static synchronized ReportService getInstance() {
+		if(instance == null) {
+			instance = new ReportService();
+		}
+		return instance;
+	}
+
+	public static long getCacheHits() {
+		return hits.get();
+	}
+
+	public static long getCacheMisses() {
+		return misses.get();
+	}
+
+	//As escritas deste processo limpam o cache no commit; as de outros clientes aparecem no change_log
+	public static void invalidateCache() {
+		cachedPayroll = null;
+	}
+
+	//Custa s um COUNT das linhas recentes do change_log quando nada mudou
+	public PayrollReport departmentPayroll() {
+		PayrollReport report = cachedPayroll;
+		if(report != null && !changeLogDao.hasChangesSince(report.getCursor())) {
+			hits.incrementAndGet();
+			return report;
+		}
+		misses.incrementAndGet();
+		report = dao.departmentPayroll();
+		store(report);
+		return report;
+	}
+
+	public CompletableFuture<PayrollReport> departmentPayrollAsync() {
+		return ServiceExecutor.supplyAsync(this::departmentPayroll);
+	}
+
+	//Dois clculos ao mesmo tempo: fica o da foto mais recente. Com a mesma posio, a foto mais nova
+	//enxerga mais linhas depois dela
+	private static synchronized void store(PayrollReport report) {
+		PayrollReport current = cachedPayroll;
+		if(current == null || isNewer(report.getCursor(), current.getCursor())) {
+			cachedPayroll = report;
+		}
+	}
+
+	private static boolean isNewer(ChangeCursor cursor, ChangeCursor other) {
+		if(cursor.getPosition() != other.getPosition()) {
+			return cursor.getPosition() > other.getPosition();
+		}
+		return cursor.getSeen().size() >= other.getSeen().size();
+	}
+
+}
@@ -0,0 +1,500 @@
+package model.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import model.entities.Seller;
+
+/**
+ * In-memory full-text index over seller name and email, accent- and
+ * case-insensitive. Terms shorter than {@value #GRAM} characters match the
+ * start of a word through a trie; longer terms match anywhere through a
+ * trigram index whose candidates are checked against the normalized text.
+ * Every term of a query must match. Updates are incremental and go by id:
+ * long posting lists keep the position of each id, so a change costs the
+ * same whatever the number of sellers.
+ */
+public class SellerSearchIndex {
+
+	static final int GRAM = 3;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	//Estimativas para JVM 64 bits com compressed oops
+	private static final int OBJECT_HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int HASH_ENTRY = 32;
+
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private final Map<String, IntBag> grams = new HashMap<>();
+	private final TrieNode words = new TrieNode();
+
+	public synchronized void put(Seller obj) {
+		Entry old = entries.get(obj.getId());
+		String text = textOf(obj);
+		if (old != null) {
+			if (old.text.equals(text)) {
+				old.seller = obj;
+				return;
+			}
+			unindex(obj.getId(), old.text);
+		}
+		entries.put(obj.getId(), new Entry(obj, text));
+		index(obj.getId(), text);
+	}
+
+	public synchronized void remove(Integer id) {
+		Entry old = entries.remove(id);
+		if (old != null) {
+			unindex(id, old.text);
+		}
+	}
+
+	public synchronized Seller get(Integer id) {
+		Entry entry = entries.get(id);
+		return entry == null ? null : entry.seller;
+	}
+
+	public synchronized List<Seller> getAll() {
+		List<Seller> list = new ArrayList<>(entries.size());
+		for (Entry entry : entries.values()) {
+			list.add(entry.seller);
+		}
+		return list;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	//Ids dos vendedores em que todos os termos da consulta aparecem (bit ligado = encontrado)
+	public synchronized BitSet search(String query) {
+		String normalized = normalize(query).trim();
+		BitSet result = null;
+		if (normalized.isEmpty()) {
+			result = new BitSet();
+			for (Integer id : entries.keySet()) {
+				result.set(id);
+			}
+			return result;
+		}
+		for (String term : new LinkedHashSet<>(Arrays.asList(SPACES.split(normalized)))) {
+			result = matchTerm(term, result);
+			if (result.isEmpty()) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Approximate heap used by the index structures (postings, trie and
+	 * normalized text), not counting the Seller objects themselves.
+	 */
+	public synchronized long estimateBytes() {
+		long bytes = 0;
+		for (Entry entry : entries.values()) {
+			bytes += HASH_ENTRY + OBJECT_HEADER + 2 * REFERENCE + stringBytes(entry.text);
+		}
+		for (Map.Entry<String, IntBag> e : grams.entrySet()) {
+			bytes += HASH_ENTRY + stringBytes(e.getKey()) + e.getValue().bytes();
+		}
+		bytes += trieBytes(words);
+		return bytes;
+	}
+
+	public synchronized long estimateBytesPerSeller() {
+		return entries.isEmpty() ? 0 : estimateBytes() / entries.size();
+	}
+
+	//Sem acentos e em minsculas: "Joo" e "joao" so o mesmo termo
+	public static String normalize(String value) {
+		if (value == null) {
+			return "";
+		}
+		String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+		return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	private static String textOf(Seller obj) {
+		return normalize(obj.getName()) + " " + normalize(obj.getEmail());
+	}
+
+	private BitSet matchTerm(String term, BitSet within) {
+		if (term.length() < GRAM) {
+			BitSet ids = new BitSet();
+			TrieNode node = words.find(term);
+			if (node != null) {
+				node.collect(ids);
+			}
+			else if (WORD_SEPARATORS.matcher(term).find()) {
+				//Termo curto com pontuao ("j."): no  incio de palavra, confere o texto todo
+				for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+					if (e.getValue().text.contains(term)) {
+						ids.set(e.getKey());
+					}
+				}
+			}
+			if (within != null) {
+				ids.and(within);
+			}
+			return ids;
+		}
+
+		//Comea pela lista mais curta e confere os candidatos no texto
+		IntBag smallest = null;
+		for (int i = 0; i + GRAM <= term.length(); i++) {
+			IntBag bag = grams.get(term.substring(i, i + GRAM));
+			if (bag == null) {
+				return new BitSet();
+			}
+			if (smallest == null || bag.size < smallest.size) {
+				smallest = bag;
+			}
+		}
+		//Com um trigrama s a lista j  a resposta exata
+		boolean verify = term.length() > GRAM;
+		BitSet ids = new BitSet();
+		for (int i = 0; i < smallest.size; i++) {
+			int id = smallest.values[i];
+			if ((within == null || within.get(id)) && (!verify || entries.get(id).text.contains(term))) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	private void index(int id, String text) {
+		for (String gram : gramsOf(text)) {
+			IntBag bag = grams.get(gram);
+			if (bag == null) {
+				bag = new IntBag();
+				grams.put(gram, bag);
+			}
+			bag.add(id);
+		}
+		for (String word : wordsOf(text)) {
+			words.add(word, id);
+		}
+	}
+
+	private void unindex(int id, String text) {
+		for (String gram : gramsOf(text)) {
+			IntBag bag = grams.get(gram);
+			if (bag != null && bag.remove(id) && bag.size == 0) {
+				grams.remove(gram);
+			}
+		}
+		for (String word : wordsOf(text)) {
+			words.remove(word, 0, id);
+		}
+	}
+
+	//Trigramas de cada palavra ou e-mail, sem atravessar espaos
+	private static Set<String> gramsOf(String text) {
+		Set<String> set = new HashSet<>();
+		for (String part : SPACES.split(text)) {
+			for (int i = 0; i + GRAM <= part.length(); i++) {
+				set.add(part.substring(i, i + GRAM));
+			}
+		}
+		return set;
+	}
+
+	private static Set<String> wordsOf(String text) {
+		Set<String> set = new HashSet<>();
+		for (String word : WORD_SEPARATORS.split(text)) {
+			if (!word.isEmpty()) {
+				set.add(word);
+			}
+		}
+		return set;
+	}
+
+	private static long stringBytes(String value) {
+		//String + byte[] compacto (Latin-1) ou char[] nas JDKs antigas
+		return OBJECT_HEADER + REFERENCE + 8 + ARRAY_HEADER + align(value.length());
+	}
+
+	private static long trieBytes(TrieNode node) {
+		long bytes = OBJECT_HEADER + 3 * REFERENCE + 4;
+		bytes += ARRAY_HEADER + align(2L * node.keys.length);
+		bytes += ARRAY_HEADER + align((long) REFERENCE * node.children.length);
+		if (node.ids != null) {
+			bytes += node.ids.bytes();
+		}
+		for (int i = 0; i < node.childCount; i++) {
+			bytes += trieBytes(node.children[i]);
+		}
+		return bytes;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	private static class Entry {
+
+		Seller seller;
+		final String text;
+
+		Entry(Seller seller, String text) {
+			this.seller = seller;
+			this.text = text;
+		}
+	}
+
+	//Lista de ids sem ordem; remover troca pelo ltimo. Acima de INDEXED_FROM ids guarda a posio de cada um
+	private static class IntBag {
+
+		static final int INDEXED_FROM = 32;
+
+		int[] values = new int[2];
+		int size;
+		IntPositions positions;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+			if (positions != null) {
+				positions.put(value, size - 1);
+			}
+			else if (size > INDEXED_FROM) {
+				positions = new IntPositions(size);
+				for (int i = 0; i < size; i++) {
+					positions.put(values[i], i);
+				}
+			}
+		}
+
+		boolean remove(int value) {
+			int i = positions != null ? positions.remove(value) : indexOf(value);
+			if (i < 0) {
+				return false;
+			}
+			int last = values[--size];
+			values[i] = last;
+			if (positions != null) {
+				if (size < INDEXED_FROM / 2) {
+					positions = null;
+				}
+				else if (i != size) {
+					positions.put(last, i);
+				}
+			}
+			if (size > 8 && size < values.length / 4) {
+				values = Arrays.copyOf(values, values.length / 2);
+			}
+			return true;
+		}
+
+		private int indexOf(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		long bytes() {
+			long bytes = OBJECT_HEADER + 2 * REFERENCE + 4 + ARRAY_HEADER + align(4L * values.length);
+			return positions == null ? bytes : bytes + positions.bytes();
+		}
+	}
+
+	//Id -> posio no IntBag, endereamento aberto: bem menor que um HashMap<Integer, Integer>
+	private static class IntPositions {
+
+		private static final int FREE = -1;
+
+		int[] keys;
+		int[] positions;
+		int size;
+
+		IntPositions(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+			keys = new int[capacity];
+			positions = new int[capacity];
+			Arrays.fill(keys, FREE);
+		}
+
+		void put(int key, int position) {
+			int slot = slot(key);
+			if (keys[slot] == FREE) {
+				if ((size + 1) * 2 > keys.length) {
+					grow();
+					slot = slot(key);
+				}
+				keys[slot] = key;
+				size++;
+			}
+			positions[slot] = position;
+		}
+
+		//-1 quando o id no est
+		int remove(int key) {
+			int slot = slot(key);
+			if (keys[slot] == FREE) {
+				return -1;
+			}
+			int position = positions[slot];
+			keys[slot] = FREE;
+			size--;
+			//Recoloca os seguintes do mesmo grupo, para a busca no parar no buraco
+			int mask = keys.length - 1;
+			for (int next = (slot + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+				int key2 = keys[next];
+				int pos2 = positions[next];
+				keys[next] = FREE;
+				int target = slot(key2);
+				keys[target] = key2;
+				positions[target] = pos2;
+			}
+			return position;
+		}
+
+		//O slot da chave, ou o livre onde ela entraria
+		private int slot(int key) {
+			int mask = keys.length - 1;
+			int hash = key * 0x9E3779B9;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (keys[slot] != FREE && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			int[] oldPositions = positions;
+			keys = new int[oldKeys.length * 2];
+			positions = new int[oldKeys.length * 2];
+			Arrays.fill(keys, FREE);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != FREE) {
+					int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					positions[slot] = oldPositions[i];
+				}
+			}
+		}
+
+		long bytes() {
+			return OBJECT_HEADER + 2 * REFERENCE + 4 + 2 * (ARRAY_HEADER + align(4L * keys.length));
+		}
+	}
+
+	//Filhos em arrays ordenados: bem menor que um HashMap por n
+	private static class TrieNode {
+
+		char[] keys = new char[0];
+		TrieNode[] children = new TrieNode[0];
+		int childCount;
+		IntBag ids;
+
+		TrieNode find(String prefix) {
+			TrieNode node = this;
+			for (int i = 0; i < prefix.length() && node != null; i++) {
+				node = node.child(prefix.charAt(i));
+			}
+			return node;
+		}
+
+		void add(String word, int id) {
+			TrieNode node = this;
+			for (int i = 0; i < word.length(); i++) {
+				char c = word.charAt(i);
+				TrieNode next = node.child(c);
+				if (next == null) {
+					next = node.insertChild(c);
+				}
+				node = next;
+			}
+			if (node.ids == null) {
+				node.ids = new IntBag();
+			}
+			node.ids.add(id);
+		}
+
+		//Apaga os ns que ficaram sem ids e sem filhos
+		void remove(String word, int depth, int id) {
+			if (depth == word.length()) {
+				if (ids != null) {
+					ids.remove(id);
+					if (ids.size == 0) {
+						ids = null;
+					}
+				}
+				return;
+			}
+			char c = word.charAt(depth);
+			TrieNode next = child(c);
+			if (next == null) {
+				return;
+			}
+			next.remove(word, depth + 1, id);
+			if (next.ids == null && next.childCount == 0) {
+				removeChild(c);
+			}
+		}
+
+		void collect(BitSet out) {
+			if (ids != null) {
+				for (int i = 0; i < ids.size; i++) {
+					out.set(ids.values[i]);
+				}
+			}
+			for (int i = 0; i < childCount; i++) {
+				children[i].collect(out);
+			}
+		}
+
+		private TrieNode child(char c) {
+			int i = Arrays.binarySearch(keys, 0, childCount, c);
+			return i >= 0 ? children[i] : null;
+		}
+
+		private TrieNode insertChild(char c) {
+			int i = -(Arrays.binarySearch(keys, 0, childCount, c) + 1);
+			if (childCount == keys.length) {
+				int capacity = Math.max(1, childCount * 2);
+				keys = Arrays.copyOf(keys, capacity);
+				children = Arrays.copyOf(children, capacity);
+			}
+			System.arraycopy(keys, i, keys, i + 1, childCount - i);
+			System.arraycopy(children, i, children, i + 1, childCount - i);
+			TrieNode node = new TrieNode();
+			keys[i] = c;
+			children[i] = node;
+			childCount++;
+			return node;
+		}
+
+		private void removeChild(char c) {
+			int i = Arrays.binarySearch(keys, 0, childCount, c);
+			if (i < 0) {
+				return;
+			}
+			System.arraycopy(keys, i + 1, keys, i, childCount - i - 1);
+			System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+			childCount--;
+			children[childCount] = null;
+		}
+	}
+}
@@ -1,30 +1,249 @@
 package model.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import db.DB;
+import model.dao.ChangeCursor;
+import model.dao.ChangeSet;
 import model.dao.DaoFactory;
+import model.dao.SellerCriteria;
 import model.dao.SellerDao;
 import model.entities.Seller;
 
 public class SellerService {
 	
+	//Compartilhado por todas as instncias: um nico objeto Seller por id durante a sesso
+	private static final EntityCache<Integer, Seller> cache = new EntityCache<>(
+			DB.getIntProperty("cache.seller.maxSize", 1000),
+			DB.getIntProperty("cache.seller.ttlMs", 300000),
+			SellerService::copyState);
+	
+	//Acima disso o ndice em memria no  montado e a busca fica no banco
+	private static final int SEARCH_INDEX_MAX_SELLERS = DB.getIntProperty("search.index.maxSellers", 200000);
+	
+	private static SellerService instance;
+	
 	private SellerDao dao = DaoFactory.createSellerDao();
 	
+	//Uma instncia para a aplicao toda, criada no primeiro uso (os DAOs pedem o pool de conexes)
+	public static synchronized SellerService getInstance() {
+		if(instance == null) {
+			instance = new SellerService();
+		}
+		return instance;
+	}
+	
+	public static EntityCache<Integer, Seller> getCache() {
+		return cache;
+	}
+	
 	public List<Seller> findAll(){
-		return dao.findAll();
+		return canonical(dao.findAll());
 	}
 	
-	public void saveOrUpdate(Seller obj) {
-		if(obj.getId() == null) {
-			dao.insert(obj);
+	public Seller findById(Integer id) {
+		Seller obj = cache.get(id);
+		if(obj != null) {
+			return obj;
 		}
-		else {
-			dao.update(obj);
+		return load(id);
+	}
+	
+	//O stream segura uma conexo do pool at ser fechado (use try-with-resources)
+	public Stream<Seller> streamAll(){
+		return dao.streamAll();
+	}
+	
+	public int count() {
+		return dao.count();
+	}
+	
+	public List<Seller> findPage(Seller after, int limit) {
+		if(after == null) {
+			return canonical(dao.findPage(null, null, limit));
 		}
+		return canonical(dao.findPage(after.getName(), after.getId(), limit));
+	}
+	
+	public List<Seller> search(SellerCriteria criteria) {
+		return canonical(dao.search(criteria));
+	}
+	
+	public int count(SellerCriteria criteria) {
+		return criteria.isUnfiltered() ? dao.count() : dao.count(criteria);
+	}
+	
+	//Pgina seguinte a "after" (continuao por chave, no por offset)
+	public List<Seller> searchPage(SellerCriteria criteria, Seller after, int limit) {
+		SellerCriteria page = new SellerCriteria(criteria);
+		if(after != null) {
+			page.setAfter(after.getName(), after.getId());
+		}
+		page.setLimit(limit);
+		return search(page);
+	}
+	
+	//Salto direto para uma posio do resultado, sem passar pelas pginas anteriores
+	public List<Seller> searchPageAt(SellerCriteria criteria, int offset, int limit) {
+		SellerCriteria page = new SellerCriteria(criteria);
+		page.setOffset(offset);
+		page.setLimit(limit);
+		return search(page);
+	}
+	
+	//Alteraes feitas por outros clientes; os removidos vm do cache quando possvel, seno s com o id
+	public ChangeSet<Seller> findChangedSince(ChangeCursor cursor) {
+		ChangeSet<Seller> changes = dao.findChangedSince(cursor);
+		List<Seller> deleted = new ArrayList<>();
+		for(Seller obj : changes.getDeleted()) {
+			Seller cached = cache.get(obj.getId());
+			cache.invalidate(obj.getId());
+			deleted.add(cached != null ? cached : obj);
+		}
+		return new ChangeSet<>(canonical(changes.getInserted()), canonical(changes.getUpdated()), deleted, changes.getCursor());
+	}
+	
+	//Devolve a instncia do cache, a mesma que j est nas telas
+	public Seller saveOrUpdate(Seller obj) {
+		UnitOfWork uow = new UnitOfWork();
+		uow.registerDirty(obj);
+		uow.commit();
+		return cache.merge(obj.getId(), obj);
+	}
+	
+	//Write-behind: a tela j mostra a edio e o banco recebe depois; previous  o estado antes dela
+	public Seller saveBehind(Seller obj, Seller previous) {
+		SellerWriteBehind.getInstance().enqueue(obj, previous);
+		return cache.merge(obj.getId(), obj);
 	}
 	
 	public void remove(Seller obj) {
-		dao.deleteById(obj.getId());
+		SellerWriteBehind.getInstance().discard(obj.getId());
+		UnitOfWork uow = new UnitOfWork();
+		uow.registerRemoved(obj);
+		uow.commit();
+	}
+	
+	//Inseres e alteraes numa s transao
+	public void saveOrUpdateAll(List<Seller> list) {
+		UnitOfWork uow = new UnitOfWork();
+		for(Seller obj : list) {
+			uow.registerDirty(obj);
+		}
+		uow.commit();
+	}
+	
+	public void removeAll(Collection<Seller> list) {
+		UnitOfWork uow = new UnitOfWork();
+		for(Seller obj : list) {
+			SellerWriteBehind.getInstance().discard(obj.getId());
+			uow.registerRemoved(obj);
+		}
+		uow.commit();
+	}
+	
+	public CompletableFuture<List<Seller>> findAllAsync(){
+		return ServiceExecutor.supplyAsync(this::findAll);
+	}
+	
+	//Quando o vendedor est no cache no h ida ao banco nem troca de thread
+	public CompletableFuture<Seller> findByIdAsync(Integer id) {
+		Seller cached = cache.get(id);
+		if(cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+		//O cache j foi consultado: a busca no conta outra falta
+		return ServiceExecutor.supplyAsync(() -> load(id));
+	}
+	
+	public CompletableFuture<Integer> countAsync() {
+		return ServiceExecutor.supplyAsync(this::count);
+	}
+	
+	public CompletableFuture<List<Seller>> findPageAsync(Seller after, int limit) {
+		return ServiceExecutor.supplyAsync(() -> findPage(after, limit));
+	}
+	
+	//L todos os vendedores num stream, sem passar pelo cache (que  limitado); null se passar do limite
+	public SellerSearchIndex buildSearchIndex() {
+		SellerSearchIndex index = new SellerSearchIndex();
+		try(Stream<Seller> stream = streamAll()) {
+			Iterator<Seller> it = stream.iterator();
+			while(it.hasNext()) {
+				if(index.size() >= SEARCH_INDEX_MAX_SELLERS) {
+					return null;
+				}
+				index.put(it.next());
+			}
+		}
+		return index;
+	}
+	
+	public CompletableFuture<SellerSearchIndex> buildSearchIndexAsync() {
+		return ServiceExecutor.supplyAsync(this::buildSearchIndex);
+	}
+	
+	//Cancelar o resultado interrompe a contagem no banco
+	public CompletableFuture<Integer> countAsync(SellerCriteria criteria) {
+		return ServiceExecutor.supplyCancellableAsync(() -> count(criteria));
+	}
+	
+	public CompletableFuture<List<Seller>> searchPageAsync(SellerCriteria criteria, Seller after, int limit) {
+		return ServiceExecutor.supplyAsync(() -> searchPage(criteria, after, limit));
+	}
+	
+	public CompletableFuture<List<Seller>> searchPageAtAsync(SellerCriteria criteria, int offset, int limit) {
+		return ServiceExecutor.supplyAsync(() -> searchPageAt(criteria, offset, limit));
+	}
+	
+	public CompletableFuture<Seller> saveOrUpdateAsync(Seller obj) {
+		return ServiceExecutor.supplyAsync(() -> saveOrUpdate(obj));
+	}
+	
+	public CompletableFuture<Void> removeAsync(Seller obj) {
+		return ServiceExecutor.runAsync(() -> remove(obj));
+	}
+	
+	public CompletableFuture<Void> saveOrUpdateAllAsync(List<Seller> list) {
+		return ServiceExecutor.runAsync(() -> saveOrUpdateAll(list));
+	}
+	
+	public CompletableFuture<Void> removeAllAsync(Collection<Seller> list) {
+		return ServiceExecutor.runAsync(() -> removeAll(list));
+	}
+	
+	private Seller load(Integer id) {
+		Seller obj = dao.findById(id);
+		return obj == null ? null : mergeFromDatabase(obj);
+	}
+	
+	private List<Seller> canonical(List<Seller> list) {
+		for(int i = 0; i < list.size(); i++) {
+			list.set(i, mergeFromDatabase(list.get(i)));
+		}
+		return list;
+	}
+	
+	//Com uma edio na fila do write-behind a instncia do cache  mais nova que o banco: pginas e poller no a sobrescrevem
+	private static Seller mergeFromDatabase(Seller fresh) {
+		if(SellerWriteBehind.isEnabled() && SellerWriteBehind.getInstance().getState(fresh.getId()) != null) {
+			return cache.putIfAbsent(fresh.getId(), fresh);
+		}
+		return cache.merge(fresh.getId(), fresh);
+	}
+	
+	private static void copyState(Seller from, Seller to) {
+		to.setName(from.getName());
+		to.setEmail(from.getEmail());
+		to.setBirthDate(from.getBirthDate());
+		to.setBaseSalary(from.getBaseSalary());
+		to.setDepartment(from.getDepartment());
+		to.trackChangesFrom(from);
 	}
 	
 }
@@ -0,0 +1,28 @@
+package model.services;
+
+import model.entities.Seller;
+import model.exception.ValidationException;
+
+public class SellerValidator {
+
+	public static void validate(Seller obj) {
+		ValidationException exception = new ValidationException("Erro de validao");
+
+		if (obj.getName() == null || obj.getName().trim().equals("")) {
+			exception.addError("nome", "  O campo no pode ser vazio !!");
+		}
+		if (obj.getEmail() == null || obj.getEmail().trim().equals("")) {
+			exception.addError("email", "  O campo no pode ser vazio !!");
+		}
+		if (obj.getBirthDate() == null) {
+			exception.addError("aniversario", "  O campo no pode ser vazio !!");
+		}
+		if (obj.getBaseSalary() == null) {
+			exception.addError("salario", "  O campo no pode ser vazio !!");
+		}
+
+		if (exception.getErrors().size() > 0) {
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package model.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.DbException;
+import db.DbIntegrityException;
+import model.entities.Seller;
+import model.exception.ValidationException;
+
+/**
+ * Optional write-behind for seller edits (writeBehind.enabled=true). An edit
+ * is applied to the cached seller at once and written later by a background
+ * worker, up to writeBehind.maxBatch sellers per transaction. Edits to a
+ * seller that is still waiting are coalesced into one UPDATE. A failed write
+ * is retried with exponential backoff; after writeBehind.maxRetries retries,
+ * or at once for an error a retry cannot fix (validation, SQLState class 23
+ * or 22), the seller goes back to the state it had before its first queued
+ * edit. While an edit waits, rows read from the database do not overwrite it
+ * in the cache.
+ */
+public class SellerWriteBehind {
+
+	public enum State { PENDING, RETRYING, WRITTEN, FAILED }
+
+	public interface Listener {
+		//Chamado na thread do gravador; quem mexe na tela repassa para a thread do JavaFX
+		void onWriteStateChanged(Seller obj, State state, Throwable error);
+	}
+
+	private static final Logger LOG = Logger.getLogger(SellerWriteBehind.class.getName());
+
+	private static final boolean ENABLED = Boolean.parseBoolean(DB.getProperties().getProperty("writeBehind.enabled", "false"));
+	private static final long DELAY_MS = DB.getIntProperty("writeBehind.delayMs", 200);
+	private static final int MAX_BATCH = DB.getIntProperty("writeBehind.maxBatch", 100);
+	private static final int MAX_RETRIES = DB.getIntProperty("writeBehind.maxRetries", 5);
+	private static final long BACKOFF_MS = DB.getIntProperty("writeBehind.backoffMs", 500);
+	private static final long MAX_BACKOFF_MS = 60000;
+
+	private static final SellerWriteBehind instance = new SellerWriteBehind();
+
+	//Por id, na ordem da primeira edio
+	private final Map<Integer, Pending> pending = new LinkedHashMap<>();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private Thread worker;
+
+	private SellerWriteBehind() {
+	}
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	public static SellerWriteBehind getInstance() {
+		return instance;
+	}
+
+	public void addListener(Listener listener) {
+		if(!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	//O estado anterior s  guardado na primeira edio:  para ele que o vendedor volta se a gravao desistir
+	public void enqueue(Seller obj, Seller previous) {
+		if(obj.getId() == null) {
+			throw new IllegalArgumentException("Only existing sellers are written behind");
+		}
+		synchronized(this) {
+			Pending p = pending.get(obj.getId());
+			if(p == null) {
+				p = new Pending(copy(previous), System.currentTimeMillis() + DELAY_MS);
+				pending.put(obj.getId(), p);
+			}
+			p.latest = copy(obj);
+			p.version++;
+			p.attempts = 0;
+			notifyAll();
+		}
+		startWorker();
+		fire(obj, State.PENDING, null);
+	}
+
+	//Vendedor removido: a alterao na fila no vale mais
+	public synchronized void discard(Integer id) {
+		pending.remove(id);
+	}
+
+	//null quando no h nada na fila para o vendedor
+	public synchronized State getState(Integer id) {
+		Pending p = pending.get(id);
+		if(p == null) {
+			return null;
+		}
+		return p.attempts > 0 ? State.RETRYING : State.PENDING;
+	}
+
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	//Grava o que est na fila sem esperar o atraso nem o backoff, por exemplo ao fechar a aplicao; false se o tempo acabar
+	public synchronized boolean flush(long timeoutMs) throws InterruptedException {
+		for(Pending p : pending.values()) {
+			p.notBefore = 0;
+		}
+		notifyAll();
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		while(!pending.isEmpty()) {
+			long wait = deadline - System.currentTimeMillis();
+			if(wait <= 0) {
+				return false;
+			}
+			wait(wait);
+		}
+		return true;
+	}
+
+	private synchronized void startWorker() {
+		if(worker == null) {
+			worker = new Thread(this::run, "seller-write-behind");
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	private void run() {
+		while(true) {
+			try {
+				write(takeBatch());
+			}
+			catch(InterruptedException e) {
+				return;
+			}
+			catch(RuntimeException e) {
+				LOG.log(Level.WARNING, "Write-behind failed: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	//Espera at haver vendedores com o atraso (ou o backoff) vencido
+	private synchronized List<Flush> takeBatch() throws InterruptedException {
+		while(true) {
+			long now = System.currentTimeMillis();
+			long wait = 0;
+			List<Flush> batch = new ArrayList<>();
+			for(Map.Entry<Integer, Pending> entry : pending.entrySet()) {
+				Pending p = entry.getValue();
+				if(p.notBefore <= now) {
+					batch.add(new Flush(entry.getKey(), p, p.version, copy(p.latest)));
+					if(batch.size() == MAX_BATCH) {
+						break;
+					}
+				}
+				else if(wait == 0 || p.notBefore - now < wait) {
+					wait = p.notBefore - now;
+				}
+			}
+			if(!batch.isEmpty()) {
+				return batch;
+			}
+			wait(wait);
+		}
+	}
+
+	private void write(List<Flush> batch) {
+		try {
+			commit(batch);
+			for(Flush flush : batch) {
+				written(flush);
+			}
+			return;
+		}
+		catch(RuntimeException e) {
+			if(batch.size() == 1) {
+				failed(batch.get(0), e);
+				return;
+			}
+		}
+		//Um vendedor com problema no segura os outros: cada um tenta sozinho
+		for(Flush flush : batch) {
+			try {
+				commit(Collections.singletonList(flush));
+				written(flush);
+			}
+			catch(RuntimeException e) {
+				failed(flush, e);
+			}
+		}
+	}
+
+	private static void commit(List<Flush> batch) {
+		UnitOfWork uow = new UnitOfWork();
+		for(Flush flush : batch) {
+			uow.registerDirty(flush.data);
+		}
+		uow.commit();
+	}
+
+	private void written(Flush flush) {
+		Seller latest;
+		State state;
+		synchronized(this) {
+			Pending p = pending.get(flush.id);
+			if(p != flush.pending) {
+				return;
+			}
+			if(p.version == flush.version) {
+				pending.remove(flush.id);
+				latest = flush.data;
+				state = State.WRITTEN;
+			}
+			//Editado de novo durante a gravao: a edio nova continua na fila, sobre o que j foi gravado
+			else {
+				p.previous = flush.data;
+				p.attempts = 0;
+				p.notBefore = 0;
+				latest = p.latest;
+				state = State.PENDING;
+			}
+			notifyAll();
+		}
+		//O commit ps no cache o que foi gravado; a edio mais nova tem que continuar na tela, comparada com o que est no banco
+		Seller shown = copy(latest);
+		shown.trackChangesFrom(flush.data);
+		fire(SellerService.getCache().merge(flush.id, shown), state, null);
+	}
+
+	private void failed(Flush flush, RuntimeException e) {
+		boolean permanent = isPermanent(e);
+		Seller restore = null;
+		synchronized(this) {
+			Pending p = pending.get(flush.id);
+			if(p != flush.pending) {
+				return;
+			}
+			p.attempts++;
+			if(permanent || p.attempts > MAX_RETRIES) {
+				pending.remove(flush.id);
+				restore = p.previous;
+			}
+			else {
+				p.notBefore = System.currentTimeMillis() + backoff(p.attempts);
+			}
+			notifyAll();
+		}
+		if(restore == null) {
+			LOG.log(Level.INFO, "Write-behind of seller " + flush.id + " will be retried: " + e.getMessage());
+			fire(flush.data, State.RETRYING, e);
+			return;
+		}
+		LOG.log(Level.WARNING, "Write-behind of seller " + flush.id + " gave up, edit rolled back: " + e.getMessage());
+		fire(SellerService.getCache().merge(flush.id, copy(restore)), State.FAILED, e);
+	}
+
+	//Repetir no resolve: regra de validao, restrio do banco (SQLState 23, ex.: e-mail duplicado) ou dado invlido (22, ex.: texto longo demais)
+	private static boolean isPermanent(RuntimeException e) {
+		if(e instanceof DbIntegrityException || e instanceof ValidationException) {
+			return true;
+		}
+		String state = e instanceof DbException ? ((DbException) e).getSQLState() : null;
+		return state != null && (state.startsWith("23") || state.startsWith("22"));
+	}
+
+	//500ms, 1s, 2s, 4s... at um minuto
+	private static long backoff(int attempts) {
+		return Math.min(MAX_BACKOFF_MS, BACKOFF_MS << Math.min(attempts - 1, 16));
+	}
+
+	private void fire(Seller obj, State state, Throwable error) {
+		for(Listener listener : listeners) {
+			listener.onWriteStateChanged(obj, state, error);
+		}
+	}
+
+	private static Seller copy(Seller obj) {
+		return new Seller(obj.getId(), obj.getName(), obj.getEmail(), obj.getBirthDate(), obj.getBaseSalary(), obj.getDepartment());
+	}
+
+	private static class Pending {
+
+		Seller previous;
+		Seller latest;
+		int version;
+		int attempts;
+		long notBefore;
+
+		Pending(Seller previous, long notBefore) {
+			this.previous = previous;
+			this.notBefore = notBefore;
+		}
+	}
+
+	//O que o gravador levou da fila: a verso serve para saber se houve edio durante a gravao
+	private static class Flush {
+
+		final Integer id;
+		final Pending pending;
+		final int version;
+		final Seller data;
+
+		Flush(Integer id, Pending pending, int version, Seller data) {
+			this.id = id;
+			this.pending = pending;
+			this.version = version;
+			this.data = data;
+		}
+	}
+}
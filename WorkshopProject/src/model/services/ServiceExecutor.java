@@ -0,0 +1,69 @@
+package model.services;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import db.QueryCancellation;
+
+public class ServiceExecutor {
+
+	private static final int FALLBACK_THREADS = 4;
+
+	private static final ExecutorService executor = createExecutor();
+
+	public static ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+		return CompletableFuture.supplyAsync(task, executor);
+	}
+
+	public static CompletableFuture<Void> runAsync(Runnable task) {
+		return CompletableFuture.runAsync(task, executor);
+	}
+
+	//Como supplyAsync, mas cancel() tambm interrompe no banco a consulta que estiver rodando
+	public static <T> CompletableFuture<T> supplyCancellableAsync(Supplier<T> task) {
+		QueryCancellation cancellation = new QueryCancellation();
+		CompletableFuture<T> future = new CompletableFuture<T>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				cancellation.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		executor.execute(() -> {
+			if(future.isDone()) {
+				return;
+			}
+			try {
+				future.complete(cancellation.run(task));
+			}
+			catch(Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	//Usa virtual threads quando a JDK suporta (21+); o pool de conexes j limita o acesso ao banco
+	private static ExecutorService createExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+				Thread t = new Thread(r, "service-worker-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package model.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import db.DB;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.dao.impl.DepartmentCache;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Collects new, changed and removed sellers and departments and writes them
+ * in one transaction, ordered for the seller to department foreign key: new
+ * departments first, so new sellers can point to them, and removed
+ * departments last, after their sellers were moved or removed. With
+ * uow.groupCommit=true, units committed by different threads at about the
+ * same time share one transaction (see {@link GroupCommit}).
+ */
+public class UnitOfWork {
+
+	private static final boolean GROUP_COMMIT = Boolean.parseBoolean(DB.getProperties().getProperty("uow.groupCommit", "false"));
+
+	private SellerDao sellerDao = DaoFactory.createSellerDao();
+	private DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+
+	//Novos ainda no tm id: comparados por identidade
+	private final List<Department> newDepartments = new ArrayList<>();
+	private final Map<Integer, Department> dirtyDepartments = new LinkedHashMap<>();
+	private final Map<Integer, Department> removedDepartments = new LinkedHashMap<>();
+
+	private final List<Seller> newSellers = new ArrayList<>();
+	private final Map<Integer, Seller> dirtySellers = new LinkedHashMap<>();
+	private final Map<Integer, Seller> removedSellers = new LinkedHashMap<>();
+
+	//Departamento de origem -> destino de todos os seus vendedores
+	private final Map<Integer, Department> sellerMoves = new LinkedHashMap<>();
+	//Preenchido no flush: os vendedores que o UPDATE moveu e para onde
+	private final Map<Integer, Department> movedSellers = new LinkedHashMap<>();
+
+	public void registerNew(Department obj) {
+		if(!containsSame(newDepartments, obj)) {
+			newDepartments.add(obj);
+		}
+	}
+
+	//Um novo que muda continua s novo; um que no mudou nada fica de fora
+	public void registerDirty(Department obj) {
+		if(obj.getId() == null) {
+			registerNew(obj);
+			return;
+		}
+		if(!obj.isDirty()) {
+			return;
+		}
+		checkNotRemoved(removedDepartments, obj.getId());
+		dirtyDepartments.put(obj.getId(), obj);
+	}
+
+	//Um novo que  removido nem chega ao banco
+	public void registerRemoved(Department obj) {
+		if(obj.getId() == null) {
+			removeSame(newDepartments, obj);
+			return;
+		}
+		dirtyDepartments.remove(obj.getId());
+		removedDepartments.put(obj.getId(), obj);
+	}
+
+	public void registerNew(Seller obj) {
+		if(!containsSame(newSellers, obj)) {
+			newSellers.add(obj);
+		}
+	}
+
+	public void registerDirty(Seller obj) {
+		if(obj.getId() == null) {
+			registerNew(obj);
+			return;
+		}
+		if(!obj.isDirty()) {
+			return;
+		}
+		checkNotRemoved(removedSellers, obj.getId());
+		dirtySellers.put(obj.getId(), obj);
+	}
+
+	public void registerRemoved(Seller obj) {
+		if(obj.getId() == null) {
+			removeSame(newSellers, obj);
+			return;
+		}
+		dirtySellers.remove(obj.getId());
+		removedSellers.put(obj.getId(), obj);
+	}
+
+	//Todos os vendedores de "from" passam para "to" com um UPDATE s, sem ler a lista antes
+	public void registerSellersMoved(Department from, Department to) {
+		sellerMoves.put(from.getId(), to);
+	}
+
+	public boolean isEmpty() {
+		return newDepartments.isEmpty() && dirtyDepartments.isEmpty() && removedDepartments.isEmpty()
+				&& newSellers.isEmpty() && dirtySellers.isEmpty() && removedSellers.isEmpty() && sellerMoves.isEmpty();
+	}
+
+	//Tudo ou nada; depois do commit a unidade fica vazia e pode ser reutilizada
+	public void commit() {
+		if(isEmpty()) {
+			return;
+		}
+		if(GROUP_COMMIT) {
+			GroupCommit.commit(this);
+		}
+		else {
+			commitAlone();
+		}
+	}
+
+	public CompletableFuture<Void> commitAsync() {
+		return ServiceExecutor.runAsync(this::commit);
+	}
+
+	void commitAlone() {
+		try {
+			DaoFactory.runInTransaction(this::flush);
+		}
+		catch(RuntimeException | Error e) {
+			afterRollback();
+			throw e;
+		}
+		afterCommit();
+	}
+
+	//Chamado dentro da transao, na ordem da chave estrangeira seller.DepartmentId
+	void flush() {
+		departmentDao.insertAll(new ArrayList<>(newDepartments));
+		departmentDao.updateAll(new ArrayList<>(dirtyDepartments.values()));
+		sellerDao.insertAll(new ArrayList<>(newSellers));
+		sellerDao.updateAll(new ArrayList<>(dirtySellers.values()));
+		sellerDao.deleteByIds(removedSellers.keySet());
+		movedSellers.clear();
+		for(Map.Entry<Integer, Department> move : sellerMoves.entrySet()) {
+			for(Integer id : sellerDao.moveToDepartment(new Department(move.getKey(), null), move.getValue())) {
+				movedSellers.put(id, move.getValue());
+			}
+		}
+		departmentDao.deleteByIds(removedDepartments.keySet());
+	}
+
+	void afterCommit() {
+		EntityCache<Integer, Seller> cache = SellerService.getCache();
+		for(Seller obj : newSellers) {
+			cache.merge(obj.getId(), obj);
+		}
+		for(Seller obj : dirtySellers.values()) {
+			cache.merge(obj.getId(), obj);
+		}
+		for(Integer id : removedSellers.keySet()) {
+			cache.invalidate(id);
+		}
+		//Edies ainda no gravadas na instncia continuam pendentes
+		for(Map.Entry<Integer, Department> moved : movedSellers.entrySet()) {
+			Department target = moved.getValue();
+			cache.update(moved.getKey(), obj -> {
+				boolean clean = !obj.isDirty();
+				obj.setDepartment(target);
+				if(clean) {
+					obj.markClean();
+				}
+			});
+		}
+		ReportService.invalidateCache();
+		clear();
+	}
+
+	//O DAO j ps no cache de departamentos o que a transao desfez; os novos voltam a no ter id
+	//e os alterados esquecem o estado que o DAO deu como gravado
+	void afterRollback() {
+		DepartmentCache departments = DepartmentCache.getInstance();
+		for(Department obj : newDepartments) {
+			if(obj.getId() != null) {
+				departments.invalidate(obj.getId());
+				obj.setId(null);
+			}
+		}
+		for(Department obj : dirtyDepartments.values()) {
+			departments.invalidate(obj.getId());
+			obj.markDirty();
+		}
+		for(Integer id : removedDepartments.keySet()) {
+			departments.invalidate(id);
+		}
+		for(Seller obj : newSellers) {
+			obj.setId(null);
+		}
+		for(Seller obj : dirtySellers.values()) {
+			obj.markDirty();
+		}
+	}
+
+	private void clear() {
+		newDepartments.clear();
+		dirtyDepartments.clear();
+		removedDepartments.clear();
+		newSellers.clear();
+		dirtySellers.clear();
+		removedSellers.clear();
+		sellerMoves.clear();
+		movedSellers.clear();
+	}
+
+	private static <T> boolean containsSame(List<T> list, T obj) {
+		for(T item : list) {
+			if(item == obj) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static <T> void removeSame(List<T> list, T obj) {
+		for(int i = 0; i < list.size(); i++) {
+			if(list.get(i) == obj) {
+				list.remove(i);
+				return;
+			}
+		}
+	}
+
+	private static void checkNotRemoved(Map<Integer, ?> removed, Integer id) {
+		if(removed.containsKey(id)) {
+			throw new IllegalStateException("Entity " + id + " was already registered as removed");
+		}
+	}
+}